@@ -1,15 +1,34 @@
 package org.composite.editor;
 
+import org.composite.history.CommandLog;
+import org.composite.history.EditCommand;
+import org.composite.history.GroupCommand;
+import org.composite.history.MoveCommand;
+import org.composite.history.RemoveCommand;
+import org.composite.history.SelectCommand;
 import org.composite.shapes.CompoundShape;
+import org.composite.shapes.LayerCache;
 import org.composite.shapes.Shape;
+import org.composite.shapes.ShapePaths;
+import org.composite.shapes.ShapeStore;
+import org.composite.shapes.ShapeTraversal;
 
 import java.awt.BorderLayout;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.JFrame;
@@ -20,6 +39,15 @@ import javax.swing.border.Border;
 public class ImageEditor {
   private final EditorCanvas canvas;
   private final CompoundShape allShapes = new CompoundShape();
+  private List<Shape> selection = new ArrayList<>();
+  // Top-level groups are painted from raster layers sharing this budget.
+  private static final long LAYER_CACHE_BYTES = 64L * 1024 * 1024;
+  private final LayerCache layerCache = new LayerCache(LAYER_CACHE_BYTES);
+  // Every edit, selection changes included, goes through the history. It keeps no snapshots:
+  // undo and redo work on deltas, and deep copies of a large drawing would stall the UI.
+  private CommandLog history = new CommandLog(allShapes);
+  // Top-level groups currently painted through layerCache.
+  private final Set<CompoundShape> layeredGroups = Collections.newSetFromMap(new IdentityHashMap<>());
 
   public ImageEditor() {
     super();
@@ -29,30 +57,248 @@ public class ImageEditor {
   public void loadShapes(Shape... shapes) {
     allShapes.clear();
     allShapes.add(shapes);
+    selection = new ArrayList<>();
+    layerCache.clear();
+    attachLayerCache();
+    history = new CommandLog(allShapes);
     canvas.refresh();
   }
 
+  // Gives the layer cache to every top-level group and takes it from groups that no longer are
+  // top-level, so groups created by grouping or brought back by undo are layered too.
+  private void attachLayerCache() {
+    final Set<CompoundShape> topLevel = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < allShapes.childCount(); i++) {
+      if (allShapes.childAt(i) instanceof CompoundShape) {
+        topLevel.add((CompoundShape) allShapes.childAt(i));
+      }
+    }
+    for (CompoundShape group : layeredGroups) {
+      if (!topLevel.contains(group)) {
+        group.setLayerCache(null);
+      }
+    }
+    for (CompoundShape group : topLevel) {
+      if (group.getLayerCache() != layerCache) {
+        group.setLayerCache(layerCache);
+      }
+    }
+    layeredGroups.clear();
+    layeredGroups.addAll(topLevel);
+  }
+
   private class EditorCanvas extends Canvas {
     JFrame frame;
 
     private static final int PADDING = 10;
+    private static final int DRAG_THRESHOLD = 4;
 
     EditorCanvas() {
       super();
       createFrame();
       refresh();
       addMouseListener(new MouseAdapter() {
+        private int pressX;
+        private int pressY;
+
         @Override
         public void mousePressed(MouseEvent e) {
-          allShapes.unSelect();
-          final boolean childSelected = allShapes.selectChildAt(e.getX(), e.getY());
+          requestFocusInWindow();
+          pressX = e.getX();
+          pressY = e.getY();
+          final Shape picked = allShapes.pickChildAt(e.getX(), e.getY());
+          if (picked != null) {
+            changeSelection(Collections.singletonList(picked));
+          } else if (allShapes.isInsideBounds(e.getX(), e.getY())) {
+            changeSelection(Collections.singletonList(allShapes));
+          } else {
+            changeSelection(Collections.emptyList());
+          }
+        }
+
+        // Dragging out a rectangle selects every top-level shape inside it.
+        @Override
+        public void mouseReleased(MouseEvent e) {
+          if (Math.abs(e.getX() - pressX) < DRAG_THRESHOLD && Math.abs(e.getY() - pressY) < DRAG_THRESHOLD) {
+            return;
+          }
+          changeSelection(allShapes.getChildrenWithin(Math.min(pressX, e.getX()), Math.min(pressY, e.getY()),
+              Math.abs(e.getX() - pressX), Math.abs(e.getY() - pressY)));
+        }
+      });
+      // Arrow keys nudge the selection, by ten pixels with shift held. Ctrl+Z and Ctrl+Y (or
+      // Ctrl+Shift+Z) undo and redo, Ctrl+G groups the selection and Delete removes it.
+      addKeyListener(new KeyAdapter() {
+        @Override
+        public void keyPressed(KeyEvent e) {
+          final int step = e.isShiftDown() ? 10 : 1;
+          switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT:
+              moveSelection(-step, 0);
+              break;
+            case KeyEvent.VK_RIGHT:
+              moveSelection(step, 0);
+              break;
+            case KeyEvent.VK_UP:
+              moveSelection(0, -step);
+              break;
+            case KeyEvent.VK_DOWN:
+              moveSelection(0, step);
+              break;
+            case KeyEvent.VK_Z:
+              if (e.isControlDown()) {
+                if (e.isShiftDown()) {
+                  redo();
+                } else {
+                  undo();
+                }
+              }
+              break;
+            case KeyEvent.VK_Y:
+              if (e.isControlDown()) {
+                redo();
+              }
+              break;
+            case KeyEvent.VK_G:
+              if (e.isControlDown()) {
+                groupSelection();
+              }
+              break;
+            case KeyEvent.VK_DELETE:
+              removeSelection();
+              break;
+            default:
+              break;
+          }
+        }
+      });
+    }
+
+    void moveSelection(int dx, int dy) {
+      if (selection.isEmpty()) {
+        return;
+      }
+      Rectangle dirty = null;
+      for (Shape shape : selection) {
+        dirty = union(dirty, shape);
+      }
+      history.execute(new MoveCommand(pathsOf(selection), dx, dy));
+      for (Shape shape : selection) {
+        dirty = union(dirty, shape);
+      }
+      repaintArea(dirty);
+    }
+
+    // Only the union of the old and new selection bounds is repainted.
+    void changeSelection(List<Shape> shapes) {
+      if (selection.isEmpty() && shapes.isEmpty()) {
+        return;
+      }
+      Rectangle dirty = null;
+      for (Shape shape : selection) {
+        dirty = union(dirty, shape);
+      }
+      history.execute(new SelectCommand(pathsOf(selection), pathsOf(shapes)));
+      selection = new ArrayList<>(shapes);
+      for (Shape shape : selection) {
+        dirty = union(dirty, shape);
+      }
+      repaintArea(dirty);
+    }
+
+    // Groups the selected shapes if they all belong to the same group.
+    void groupSelection() {
+      final List<int[]> paths = pathsOf(selection);
+      if (paths.isEmpty() || paths.get(0).length == 0) {
+        return;
+      }
+      final int[] parentPath = Arrays.copyOf(paths.get(0), paths.get(0).length - 1);
+      final int[] positions = new int[paths.size()];
+      for (int i = 0; i < paths.size(); i++) {
+        final int[] path = paths.get(i);
+        if (!Arrays.equals(Arrays.copyOf(path, path.length - 1), parentPath)) {
+          return;
+        }
+        positions[i] = path[path.length - 1];
+      }
+      if (!(ShapePaths.resolve(allShapes, parentPath) instanceof CompoundShape)) {
+        return;
+      }
+      history.execute(new GroupCommand(parentPath, positions));
+      attachLayerCache();
+      repaint();
+    }
+
+    void removeSelection() {
+      final List<int[]> paths = pathsOf(selection);
+      paths.removeIf(path -> path.length == 0
+          || !(ShapePaths.resolve(allShapes, Arrays.copyOf(path, path.length - 1)) instanceof CompoundShape));
+      if (paths.isEmpty()) {
+        return;
+      }
+      // Last paths first, so earlier removals do not shift the positions of later ones.
+      paths.sort((a, b) -> Arrays.compare(b, a));
+      final List<EditCommand> removals = new ArrayList<>();
+      for (int[] path : paths) {
+        removals.add(new RemoveCommand(allShapes, path));
+      }
+      history.execute(EditCommand.batch(removals));
+      attachLayerCache();
+      selection = new ArrayList<>();
+      repaint();
+    }
+
+    void undo() {
+      if (history.canUndo()) {
+        history.undo();
+        attachLayerCache();
+        selection = collectSelection();
+        repaint();
+      }
+    }
 
-          if (!childSelected && allShapes.isInsideBounds(e.getX(), e.getY())) {
-            allShapes.select();
+    void redo() {
+      if (history.canRedo()) {
+        history.redo();
+        attachLayerCache();
+        selection = collectSelection();
+        repaint();
+      }
+    }
+
+    private List<int[]> pathsOf(List<Shape> shapes) {
+      return ShapePaths.pathsOf(allShapes, shapes);
+    }
+
+    // Undo and redo may replace shapes, so the selection is read back from the tree.
+    private List<Shape> collectSelection() {
+      final List<Shape> selected = new ArrayList<>();
+      new ShapeTraversal().preOrder(allShapes, shape -> {
+        if (shape.isSelected()) {
+          selected.add(shape);
+        }
+        if (shape instanceof ShapeStore) {
+          final ShapeStore store = (ShapeStore) shape;
+          for (int i = 0; i < store.size(); i++) {
+            if (store.isSelected(i)) {
+              selected.add(store.get(i));
+            }
           }
-          e.getComponent().repaint();
         }
       });
+      return selected;
+    }
+
+    private void repaintArea(Rectangle dirty) {
+      if (dirty != null) {
+        final int margin = CompoundShape.PAINT_MARGIN;
+        repaint(dirty.x - margin, dirty.y - margin, dirty.width + 2 * margin + 1, dirty.height + 2 * margin + 1);
+      }
+    }
+
+    private Rectangle union(Rectangle area, Shape shape) {
+      final Rectangle bounds = new Rectangle(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight());
+      return area == null ? bounds : area.union(bounds);
     }
 
     void createFrame() {
@@ -0,0 +1,28 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapePaths;
+
+// Inserts a copy of the prototype, so the command can be applied to any number of trees.
+public final class AddCommand implements EditCommand {
+  private final int[] path;
+  private final Shape prototype;
+
+  // path is where the new shape will live once added.
+  public AddCommand(int[] path, Shape prototype) {
+    super();
+    this.path = path.clone();
+    this.prototype = ShapeCopier.copy(prototype);
+  }
+
+  @Override
+  public void apply(CompoundShape root) {
+    ShapePaths.parentOf(root, path).add(path[path.length - 1], ShapeCopier.copy(prototype));
+  }
+
+  @Override
+  public void revert(CompoundShape root) {
+    ShapePaths.parentOf(root, path).removeAt(path[path.length - 1]);
+  }
+}
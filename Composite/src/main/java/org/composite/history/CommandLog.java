@@ -0,0 +1,100 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Undo/redo history of a drawing. Commands are applied to the live document as deltas. Snapshots
+ * are opt-in: with a snapshot interval, a deep copy of the document is kept every
+ * {@code snapshotInterval} commands, so {@link #replay()} rebuilds the current state from the
+ * nearest snapshot plus the commands since. Besides the initial copy at most
+ * {@code maxSnapshots} are retained, the oldest being dropped first.
+ */
+public final class CommandLog {
+  private final CompoundShape document;
+  private final int snapshotInterval;
+  private final int maxSnapshots;
+  private final List<EditCommand> commands = new ArrayList<>();
+  // Deep copies of the document keyed by how many commands had been applied.
+  private final TreeMap<Integer, CompoundShape> snapshots = new TreeMap<>();
+  private int position = 0;
+
+  // A history without snapshots: nothing is ever copied, and replay() is not available.
+  public CommandLog(CompoundShape document) {
+    super();
+    this.document = document;
+    this.snapshotInterval = 0;
+    this.maxSnapshots = 0;
+  }
+
+  public CommandLog(CompoundShape document, int snapshotInterval, int maxSnapshots) {
+    super();
+    this.document = document;
+    this.snapshotInterval = Math.max(1, snapshotInterval);
+    this.maxSnapshots = Math.max(0, maxSnapshots);
+    snapshots.put(0, ShapeCopier.copyGroup(document));
+  }
+
+  // Applies the command and records it, discarding anything that could have been redone.
+  public void execute(EditCommand command) {
+    command.apply(document);
+    commands.subList(position, commands.size()).clear();
+    snapshots.tailMap(position, false).clear();
+    commands.add(command);
+    position++;
+    if (snapshotInterval > 0 && position % snapshotInterval == 0) {
+      snapshots.put(position, ShapeCopier.copyGroup(document));
+      // The initial copy stays, so any position can still be replayed, if from further back.
+      while (snapshots.size() > maxSnapshots + 1) {
+        snapshots.remove(snapshots.higherKey(0));
+      }
+    }
+  }
+
+  public boolean canUndo() {
+    return position > 0;
+  }
+
+  public boolean canRedo() {
+    return position < commands.size();
+  }
+
+  public void undo() {
+    if (!canUndo()) {
+      throw new IllegalStateException("Nothing to undo");
+    }
+    commands.get(--position).revert(document);
+  }
+
+  public void redo() {
+    if (!canRedo()) {
+      throw new IllegalStateException("Nothing to redo");
+    }
+    commands.get(position++).apply(document);
+  }
+
+  // A fresh tree in the document's current state, built without touching the document.
+  public CompoundShape replay() {
+    if (snapshots.isEmpty()) {
+      throw new IllegalStateException("This history keeps no snapshots");
+    }
+    final Map.Entry<Integer, CompoundShape> snapshot = snapshots.floorEntry(position);
+    final CompoundShape tree = ShapeCopier.copyGroup(snapshot.getValue());
+    for (int i = snapshot.getKey(); i < position; i++) {
+      commands.get(i).apply(tree);
+    }
+    return tree;
+  }
+
+  public int size() {
+    return commands.size();
+  }
+
+  public int position() {
+    return position;
+  }
+}
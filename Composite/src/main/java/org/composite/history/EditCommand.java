@@ -0,0 +1,36 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+
+import java.util.List;
+
+/**
+ * One edit to a drawing, addressing shapes by index path from the root group so that it can be
+ * applied to any copy of the tree in the same state. Commands hold no references into a tree.
+ */
+public interface EditCommand {
+  void apply(CompoundShape root);
+
+  // Undoes apply; the tree must be in the state apply left it in.
+  void revert(CompoundShape root);
+
+  // Several commands applied in order and reverted in reverse, as a single history step.
+  static EditCommand batch(List<EditCommand> commands) {
+    final List<EditCommand> steps = List.copyOf(commands);
+    return new EditCommand() {
+      @Override
+      public void apply(CompoundShape root) {
+        for (EditCommand step : steps) {
+          step.apply(root);
+        }
+      }
+
+      @Override
+      public void revert(CompoundShape root) {
+        for (int i = steps.size() - 1; i >= 0; i--) {
+          steps.get(i).revert(root);
+        }
+      }
+    };
+  }
+}
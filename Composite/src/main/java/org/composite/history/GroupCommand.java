@@ -0,0 +1,58 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapePaths;
+
+import java.util.Arrays;
+
+// Wraps some children of one group into a new group, placed where the first of them was.
+public final class GroupCommand implements EditCommand {
+  private final int[] parentPath;
+  private final int[] positions;
+
+  public GroupCommand(int[] parentPath, int... positions) {
+    super();
+    if (positions.length == 0) {
+      throw new IllegalArgumentException("Nothing to group");
+    }
+    this.parentPath = parentPath.clone();
+    this.positions = positions.clone();
+    Arrays.sort(this.positions);
+  }
+
+  // Path of the new group once applied.
+  public int[] groupPath() {
+    final int[] path = Arrays.copyOf(parentPath, parentPath.length + 1);
+    path[parentPath.length] = positions[0];
+    return path;
+  }
+
+  @Override
+  public void apply(CompoundShape root) {
+    final CompoundShape parent = parent(root);
+    final Shape[] members = new Shape[positions.length];
+    for (int i = positions.length - 1; i >= 0; i--) {
+      members[i] = parent.removeAt(positions[i]);
+    }
+    parent.add(positions[0], new CompoundShape(members));
+  }
+
+  @Override
+  public void revert(CompoundShape root) {
+    final CompoundShape parent = parent(root);
+    final CompoundShape group = (CompoundShape) parent.removeAt(positions[0]);
+    final Shape[] members = new Shape[group.childCount()];
+    for (int i = 0; i < members.length; i++) {
+      members[i] = group.childAt(i);
+    }
+    group.clear();
+    for (int i = 0; i < positions.length; i++) {
+      parent.add(positions[i], members[i]);
+    }
+  }
+
+  private CompoundShape parent(CompoundShape root) {
+    return (CompoundShape) ShapePaths.resolve(root, parentPath);
+  }
+}
@@ -0,0 +1,36 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.ParallelShapeOps;
+import org.composite.shapes.ShapePaths;
+
+import java.util.List;
+
+public final class MoveCommand implements EditCommand {
+  private static final ParallelShapeOps BULK_OPS = new ParallelShapeOps();
+
+  private final List<int[]> paths;
+  private final int dx;
+  private final int dy;
+
+  public MoveCommand(List<int[]> paths, int dx, int dy) {
+    super();
+    this.paths = List.copyOf(paths);
+    this.dx = dx;
+    this.dy = dy;
+  }
+
+  @Override
+  public void apply(CompoundShape root) {
+    for (int[] path : paths) {
+      BULK_OPS.move(ShapePaths.resolve(root, path), dx, dy);
+    }
+  }
+
+  @Override
+  public void revert(CompoundShape root) {
+    for (int[] path : paths) {
+      BULK_OPS.move(ShapePaths.resolve(root, path), -dx, -dy);
+    }
+  }
+}
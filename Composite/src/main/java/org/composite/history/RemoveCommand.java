@@ -0,0 +1,24 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.ShapePaths;
+
+public final class RemoveCommand implements EditCommand {
+  private final AddCommand inverse;
+
+  // Captures a copy of the shape at path in root, which revert puts back.
+  public RemoveCommand(CompoundShape root, int[] path) {
+    super();
+    this.inverse = new AddCommand(path, ShapePaths.resolve(root, path));
+  }
+
+  @Override
+  public void apply(CompoundShape root) {
+    inverse.revert(root);
+  }
+
+  @Override
+  public void revert(CompoundShape root) {
+    inverse.apply(root);
+  }
+}
@@ -0,0 +1,37 @@
+package org.composite.history;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.ShapePaths;
+
+import java.util.List;
+
+// Replaces one selection by another; before must be everything selected when it is applied.
+public final class SelectCommand implements EditCommand {
+  private final List<int[]> before;
+  private final List<int[]> after;
+
+  public SelectCommand(List<int[]> before, List<int[]> after) {
+    super();
+    this.before = List.copyOf(before);
+    this.after = List.copyOf(after);
+  }
+
+  @Override
+  public void apply(CompoundShape root) {
+    change(root, before, after);
+  }
+
+  @Override
+  public void revert(CompoundShape root) {
+    change(root, after, before);
+  }
+
+  private static void change(CompoundShape root, List<int[]> from, List<int[]> to) {
+    for (int[] path : from) {
+      ShapePaths.resolve(root, path).unSelect();
+    }
+    for (int[] path : to) {
+      ShapePaths.resolve(root, path).select();
+    }
+  }
+}
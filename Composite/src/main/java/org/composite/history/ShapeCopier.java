@@ -0,0 +1,68 @@
+package org.composite.history;
+
+import org.composite.shapes.Circle;
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Rectangle;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapeStore;
+
+// Deep copies of the built-in shapes, selection included and layer caches left out.
+final class ShapeCopier {
+  private ShapeCopier() {
+    super();
+  }
+
+  static Shape copy(Shape shape) {
+    final Shape copy;
+    if (shape instanceof Dot) {
+      copy = new Dot(shape.getX(), shape.getY(), ((Dot) shape).getColor());
+    } else if (shape instanceof Circle) {
+      copy = new Circle(shape.getX(), shape.getY(), ((Circle) shape).getRadius(), ((Circle) shape).getColor());
+    } else if (shape instanceof Rectangle) {
+      copy = new Rectangle(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(),
+          ((Rectangle) shape).getColor());
+    } else if (shape instanceof CompoundShape) {
+      copy = copyGroup((CompoundShape) shape);
+    } else if (shape instanceof ShapeStore) {
+      copy = copyStore((ShapeStore) shape);
+    } else {
+      throw new IllegalArgumentException("Cannot copy " + shape.getClass().getName());
+    }
+    if (shape.isSelected()) {
+      copy.select();
+    }
+    return copy;
+  }
+
+  static CompoundShape copyGroup(CompoundShape group) {
+    final Shape[] children = new Shape[group.childCount()];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = copy(group.childAt(i));
+    }
+    return new CompoundShape(children);
+  }
+
+  private static ShapeStore copyStore(ShapeStore store) {
+    final ShapeStore copy = new ShapeStore();
+    for (int i = 0; i < store.size(); i++) {
+      final Shape primitive = store.get(i);
+      switch (store.getKind(i)) {
+        case DOT:
+          copy.addDot(primitive.getX(), primitive.getY(), store.getColor(i));
+          break;
+        case CIRCLE:
+          copy.addCircle(primitive.getX(), primitive.getY(), primitive.getWidth() / 2, store.getColor(i));
+          break;
+        default:
+          copy.addRectangle(primitive.getX(), primitive.getY(), primitive.getWidth(), primitive.getHeight(),
+              store.getColor(i));
+          break;
+      }
+      if (store.isSelected(i)) {
+        copy.select(i);
+      }
+    }
+    return copy;
+  }
+}
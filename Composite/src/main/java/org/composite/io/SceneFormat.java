@@ -0,0 +1,55 @@
+package org.composite.io;
+
+/*
+ * Layout of a scene file, all multi-byte integers big-endian:
+ *
+ *   "CSCN", version byte, varint palette size, palette colours as ARGB ints, root group node.
+ *
+ * A node starts with a tag byte: the node kind, plus SELECTED when the shape is selected.
+ * Coordinates are zigzag varints relative to the origin (stored x, y) of the enclosing group, so
+ * most of them fit in one or two bytes; sizes and palette indexes are plain varints.
+ *
+ *   DOT        x, y, colour
+ *   CIRCLE     x, y, radius, colour
+ *   RECTANGLE  x, y, width, height, colour
+ *   GROUP      body length, then body: x, y, width, height, child count, children
+ *   STORE      body length, then body: x, y, width, height, count, primitives
+ *
+ * Groups and stores carry their bounds and the byte length of their body, so a reader can skip
+ * a subtree, or map the file and decode it only when needed. A store primitive is a tag byte and
+ * the fields of the matching leaf node.
+ */
+final class SceneFormat {
+  static final int MAGIC = 0x4353434E;
+  static final int VERSION = 1;
+
+  static final int DOT = 1;
+  static final int CIRCLE = 2;
+  static final int RECTANGLE = 3;
+  static final int GROUP = 4;
+  static final int STORE = 5;
+
+  static final int SELECTED = 0x80;
+  static final int KIND_MASK = 0x7F;
+
+  private SceneFormat() {
+    super();
+  }
+
+  static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static int varIntSize(int value) {
+    int size = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,305 @@
+package org.composite.io;
+
+import org.composite.shapes.Circle;
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Rectangle;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapeStore;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads drawings written by {@link SceneWriter}, either streaming the whole tree from an input
+ * stream or mapping a file and decoding each group only when it is first used.
+ */
+public final class SceneReader {
+  private final Source source;
+  private Color[] palette;
+
+  private SceneReader(Source source) {
+    super();
+    this.source = source;
+  }
+
+  public static CompoundShape read(InputStream in) throws IOException {
+    return read(in, shape -> {
+    });
+  }
+
+  // Top-level shapes are handed to the callback as soon as each one is complete, so a caller can
+  // start showing a large drawing before the rest of it has been read.
+  public static CompoundShape read(InputStream in, Consumer<Shape> onTopLevelShape) throws IOException {
+    final SceneReader reader = new SceneReader(new StreamSource(
+        new DataInputStream(new BufferedInputStream(in, 1 << 16))));
+    reader.readHeader();
+    final int tag = reader.source.readByte();
+    if ((tag & SceneFormat.KIND_MASK) != SceneFormat.GROUP) {
+      throw new IOException("Scene root is not a group");
+    }
+    reader.source.readVarInt();
+    final int x = reader.readCoordinate(0);
+    final int y = reader.readCoordinate(0);
+    reader.source.readVarInt();
+    reader.source.readVarInt();
+    final int count = reader.source.readVarInt();
+    final CompoundShape root = new CompoundShape();
+    for (int i = 0; i < count; i++) {
+      final Shape child = reader.readNode(x, y);
+      root.add(child);
+      onTopLevelShape.accept(child);
+    }
+    if ((tag & SceneFormat.SELECTED) != 0) {
+      root.select();
+    }
+    return root;
+  }
+
+  // Maps the file and returns its root as a lazily loaded group: only the header and the bounds
+  // of the root are read here, nested groups are decoded from the mapping when first reached.
+  public static CompoundShape map(Path file) throws IOException {
+    final MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Scene file too large to map: " + channel.size() + " bytes");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    final SceneReader reader = new SceneReader(new BufferSource(buffer));
+    try {
+      reader.readHeader();
+      return (CompoundShape) reader.readNode(0, 0);
+    } catch (BufferUnderflowException | ClassCastException e) {
+      throw new IOException("Corrupt scene file " + file, e);
+    }
+  }
+
+  private void readHeader() throws IOException {
+    if (source.readInt() != SceneFormat.MAGIC) {
+      throw new IOException("Not a scene file");
+    }
+    final int version = source.readByte();
+    if (version != SceneFormat.VERSION) {
+      throw new IOException("Unsupported scene version " + version);
+    }
+    palette = new Color[source.readVarInt()];
+    for (int i = 0; i < palette.length; i++) {
+      palette[i] = new Color(source.readInt(), true);
+    }
+  }
+
+  private Shape readNode(int originX, int originY) throws IOException {
+    final int tag = source.readByte();
+    final Shape shape;
+    switch (tag & SceneFormat.KIND_MASK) {
+      case SceneFormat.DOT:
+      case SceneFormat.CIRCLE:
+      case SceneFormat.RECTANGLE:
+        shape = readLeaf(tag & SceneFormat.KIND_MASK, originX, originY);
+        break;
+      case SceneFormat.GROUP:
+        shape = readGroup(originX, originY);
+        break;
+      case SceneFormat.STORE:
+        shape = readStore(originX, originY);
+        break;
+      default:
+        throw new IOException("Unknown scene node tag " + tag);
+    }
+    if ((tag & SceneFormat.SELECTED) != 0) {
+      shape.select();
+    }
+    return shape;
+  }
+
+  private Shape readLeaf(int kind, int originX, int originY) throws IOException {
+    final int x = readCoordinate(originX);
+    final int y = readCoordinate(originY);
+    switch (kind) {
+      case SceneFormat.DOT:
+        return new Dot(x, y, readColor());
+      case SceneFormat.CIRCLE:
+        final int radius = source.readVarInt();
+        return new Circle(x, y, radius, readColor());
+      default:
+        final int width = source.readVarInt();
+        final int height = source.readVarInt();
+        return new Rectangle(x, y, width, height, readColor());
+    }
+  }
+
+  // A mapped group is skipped using its body length and decoded from a duplicate of the buffer
+  // when first used; a streamed group is read in full.
+  private CompoundShape readGroup(int originX, int originY) throws IOException {
+    final int length = source.readVarInt();
+    final int end = source.position() + length;
+    final int x = readCoordinate(originX);
+    final int y = readCoordinate(originY);
+    final int width = source.readVarInt();
+    final int height = source.readVarInt();
+    final int count = source.readVarInt();
+    if (source instanceof BufferSource) {
+      final ByteBuffer buffer = ((BufferSource) source).buffer;
+      final int childrenStart = source.position();
+      // Checked here so a corrupt length is reported as such rather than by buffer.position().
+      if (end < childrenStart || end > buffer.limit()) {
+        throw new IOException("Scene group length " + length + " runs past the end of the file");
+      }
+      buffer.position(end);
+      return CompoundShape.lazy(x, y, width, height, count,
+          () -> readChildren(buffer, childrenStart, count, x, y));
+    }
+    final Shape[] children = new Shape[count];
+    for (int i = 0; i < count; i++) {
+      children[i] = readNode(x, y);
+    }
+    return new CompoundShape(children);
+  }
+
+  private List<Shape> readChildren(ByteBuffer buffer, int start, int count, int x, int y) {
+    final SceneReader reader = new SceneReader(new BufferSource(buffer.duplicate().position(start)));
+    reader.palette = palette;
+    final List<Shape> children = new ArrayList<>(count);
+    try {
+      for (int i = 0; i < count; i++) {
+        children.add(reader.readNode(x, y));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (BufferUnderflowException e) {
+      throw new UncheckedIOException(new EOFException("Truncated scene group"));
+    }
+    return children;
+  }
+
+  // Stores are compact enough to be decoded eagerly even when mapped.
+  private ShapeStore readStore(int originX, int originY) throws IOException {
+    source.readVarInt();
+    final int x = readCoordinate(originX);
+    final int y = readCoordinate(originY);
+    source.readVarInt();
+    source.readVarInt();
+    final int count = source.readVarInt();
+    final ShapeStore store = new ShapeStore();
+    for (int i = 0; i < count; i++) {
+      final int tag = source.readByte();
+      final int index;
+      switch (tag & SceneFormat.KIND_MASK) {
+        case SceneFormat.DOT:
+          index = store.addDot(readCoordinate(x), readCoordinate(y), readColor());
+          break;
+        case SceneFormat.CIRCLE:
+          index = store.addCircle(readCoordinate(x), readCoordinate(y), source.readVarInt(), readColor());
+          break;
+        case SceneFormat.RECTANGLE:
+          index = store.addRectangle(readCoordinate(x), readCoordinate(y), source.readVarInt(),
+              source.readVarInt(), readColor());
+          break;
+        default:
+          throw new IOException("Unknown store primitive tag " + tag);
+      }
+      if ((tag & SceneFormat.SELECTED) != 0) {
+        store.select(index);
+      }
+    }
+    return store;
+  }
+
+  private int readCoordinate(int origin) throws IOException {
+    return origin + SceneFormat.unzigzag(source.readVarInt());
+  }
+
+  private Color readColor() throws IOException {
+    final int index = source.readVarInt();
+    if (index >= palette.length) {
+      throw new IOException("Palette index out of range: " + index);
+    }
+    return palette[index];
+  }
+
+  private abstract static class Source {
+    abstract int readByte() throws IOException;
+
+    abstract int readInt() throws IOException;
+
+    abstract int position();
+
+    int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        final int b = readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint");
+    }
+  }
+
+  private static final class StreamSource extends Source {
+    private final DataInputStream in;
+    private int position = 0;
+
+    StreamSource(DataInputStream in) {
+      super();
+      this.in = in;
+    }
+
+    @Override
+    int readByte() throws IOException {
+      position++;
+      return in.readUnsignedByte();
+    }
+
+    @Override
+    int readInt() throws IOException {
+      position += 4;
+      return in.readInt();
+    }
+
+    @Override
+    int position() {
+      return position;
+    }
+  }
+
+  private static final class BufferSource extends Source {
+    private final ByteBuffer buffer;
+
+    BufferSource(ByteBuffer buffer) {
+      super();
+      this.buffer = buffer;
+    }
+
+    @Override
+    int readByte() {
+      return buffer.get() & 0xFF;
+    }
+
+    @Override
+    int readInt() {
+      return buffer.getInt();
+    }
+
+    @Override
+    int position() {
+      return buffer.position();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package org.composite.io;
+
+import org.composite.shapes.Circle;
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Rectangle;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapeStore;
+import org.composite.shapes.ShapeTraversal;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a drawing in the compact binary scene format described in {@link SceneFormat}. Body
+ * lengths are computed in a first pass so that every group can be written in a single stream.
+ */
+public final class SceneWriter {
+  private final Map<Color, Integer> palette = new HashMap<>();
+  private final List<Color> colors = new ArrayList<>();
+  private final Map<Shape, Integer> bodyLengths = new IdentityHashMap<>();
+
+  private SceneWriter() {
+    super();
+  }
+
+  public static void write(CompoundShape root, Path file) throws IOException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      write(root, out);
+    }
+  }
+
+  public static void write(CompoundShape root, OutputStream out) throws IOException {
+    final SceneWriter writer = new SceneWriter();
+    writer.collectPalette(root);
+    writer.bodyLength(root, 0, 0);
+    final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    data.writeInt(SceneFormat.MAGIC);
+    data.writeByte(SceneFormat.VERSION);
+    writeVarInt(data, writer.colors.size());
+    for (Color color : writer.colors) {
+      data.writeInt(color.getRGB());
+    }
+    writer.writeNode(data, root, 0, 0);
+    data.flush();
+  }
+
+  private void collectPalette(CompoundShape root) {
+    new ShapeTraversal().preOrder(root, shape -> {
+      if (shape instanceof ShapeStore) {
+        final ShapeStore store = (ShapeStore) shape;
+        for (int i = 0; i < store.size(); i++) {
+          paletteIndex(store.getColor(i));
+        }
+      } else if (!(shape instanceof CompoundShape)) {
+        paletteIndex(colorOf(shape));
+      }
+    });
+  }
+
+  private int paletteIndex(Color color) {
+    return palette.computeIfAbsent(color, key -> {
+      colors.add(key);
+      return colors.size() - 1;
+    });
+  }
+
+  // Encoded size of the whole node, tag included; group and store body lengths are remembered.
+  private int nodeSize(Shape shape, int originX, int originY) {
+    if (shape instanceof CompoundShape || shape instanceof ShapeStore) {
+      final int body = bodyLength(shape, originX, originY);
+      return 1 + SceneFormat.varIntSize(body) + body;
+    }
+    return 1 + leafSize(shape, originX, originY);
+  }
+
+  private int bodyLength(Shape shape, int originX, int originY) {
+    final int x = shape.getX();
+    final int y = shape.getY();
+    int length = SceneFormat.varIntSize(SceneFormat.zigzag(x - originX))
+        + SceneFormat.varIntSize(SceneFormat.zigzag(y - originY))
+        + SceneFormat.varIntSize(shape.getWidth()) + SceneFormat.varIntSize(shape.getHeight());
+    if (shape instanceof CompoundShape) {
+      final CompoundShape group = (CompoundShape) shape;
+      length += SceneFormat.varIntSize(group.childCount());
+      for (int i = 0; i < group.childCount(); i++) {
+        length += nodeSize(group.childAt(i), x, y);
+      }
+    } else {
+      final ShapeStore store = (ShapeStore) shape;
+      length += SceneFormat.varIntSize(store.size());
+      for (int i = 0; i < store.size(); i++) {
+        length += 1 + leafSize(store.get(i), store.getKind(i), store.getColor(i), x, y);
+      }
+    }
+    bodyLengths.put(shape, length);
+    return length;
+  }
+
+  private int leafSize(Shape shape, int originX, int originY) {
+    return leafSize(shape, kindOf(shape), colorOf(shape), originX, originY);
+  }
+
+  private int leafSize(Shape shape, ShapeStore.Kind kind, Color color, int originX, int originY) {
+    int size = SceneFormat.varIntSize(SceneFormat.zigzag(shape.getX() - originX))
+        + SceneFormat.varIntSize(SceneFormat.zigzag(shape.getY() - originY))
+        + SceneFormat.varIntSize(palette.get(color));
+    if (kind == ShapeStore.Kind.CIRCLE) {
+      size += SceneFormat.varIntSize(shape.getWidth() / 2);
+    } else if (kind == ShapeStore.Kind.RECTANGLE) {
+      size += SceneFormat.varIntSize(shape.getWidth()) + SceneFormat.varIntSize(shape.getHeight());
+    }
+    return size;
+  }
+
+  private void writeNode(DataOutputStream out, Shape shape, int originX, int originY) throws IOException {
+    final int selected = shape.isSelected() ? SceneFormat.SELECTED : 0;
+    if (shape instanceof CompoundShape || shape instanceof ShapeStore) {
+      out.writeByte((shape instanceof CompoundShape ? SceneFormat.GROUP : SceneFormat.STORE) | selected);
+      writeVarInt(out, bodyLengths.get(shape));
+      final int x = shape.getX();
+      final int y = shape.getY();
+      writeVarInt(out, SceneFormat.zigzag(x - originX));
+      writeVarInt(out, SceneFormat.zigzag(y - originY));
+      writeVarInt(out, shape.getWidth());
+      writeVarInt(out, shape.getHeight());
+      if (shape instanceof CompoundShape) {
+        final CompoundShape group = (CompoundShape) shape;
+        writeVarInt(out, group.childCount());
+        for (int i = 0; i < group.childCount(); i++) {
+          writeNode(out, group.childAt(i), x, y);
+        }
+      } else {
+        final ShapeStore store = (ShapeStore) shape;
+        writeVarInt(out, store.size());
+        for (int i = 0; i < store.size(); i++) {
+          final ShapeStore.Kind kind = store.getKind(i);
+          out.writeByte(tagOf(kind) | (store.isSelected(i) ? SceneFormat.SELECTED : 0));
+          writeLeaf(out, store.get(i), kind, store.getColor(i), x, y);
+        }
+      }
+    } else {
+      final ShapeStore.Kind kind = kindOf(shape);
+      out.writeByte(tagOf(kind) | selected);
+      writeLeaf(out, shape, kind, colorOf(shape), originX, originY);
+    }
+  }
+
+  private void writeLeaf(DataOutputStream out, Shape shape, ShapeStore.Kind kind, Color color,
+                         int originX, int originY) throws IOException {
+    writeVarInt(out, SceneFormat.zigzag(shape.getX() - originX));
+    writeVarInt(out, SceneFormat.zigzag(shape.getY() - originY));
+    if (kind == ShapeStore.Kind.CIRCLE) {
+      writeVarInt(out, shape.getWidth() / 2);
+    } else if (kind == ShapeStore.Kind.RECTANGLE) {
+      writeVarInt(out, shape.getWidth());
+      writeVarInt(out, shape.getHeight());
+    }
+    writeVarInt(out, palette.get(color));
+  }
+
+  private static ShapeStore.Kind kindOf(Shape shape) {
+    if (shape instanceof Dot) {
+      return ShapeStore.Kind.DOT;
+    } else if (shape instanceof Circle) {
+      return ShapeStore.Kind.CIRCLE;
+    } else if (shape instanceof Rectangle) {
+      return ShapeStore.Kind.RECTANGLE;
+    }
+    throw new IllegalArgumentException("Cannot write " + shape.getClass().getName());
+  }
+
+  private static Color colorOf(Shape shape) {
+    if (shape instanceof Dot) {
+      return ((Dot) shape).getColor();
+    } else if (shape instanceof Circle) {
+      return ((Circle) shape).getColor();
+    } else if (shape instanceof Rectangle) {
+      return ((Rectangle) shape).getColor();
+    }
+    throw new IllegalArgumentException("Cannot write " + shape.getClass().getName());
+  }
+
+  private static int tagOf(ShapeStore.Kind kind) {
+    switch (kind) {
+      case DOT:
+        return SceneFormat.DOT;
+      case CIRCLE:
+        return SceneFormat.CIRCLE;
+      default:
+        return SceneFormat.RECTANGLE;
+    }
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+}
@@ -0,0 +1,116 @@
+package org.composite.render;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapeTraversal;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Rasterises shape trees without a display. The output is cut into square tiles that are painted
+ * in parallel, each into its own image, by walking only the shapes whose bounds meet the tile.
+ * Groups are walked rather than asked to paint themselves, so their indexes and layer caches are
+ * never touched from several threads; leaf and {@code ShapeStore} painting only reads the tree.
+ * The tree must not change while a render is running.
+ */
+public final class HeadlessRenderer {
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private final ForkJoinPool pool;
+  private final int tileSize;
+
+  public HeadlessRenderer() {
+    this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+  }
+
+  public HeadlessRenderer(ForkJoinPool pool, int tileSize) {
+    super();
+    this.pool = pool;
+    this.tileSize = Math.max(16, tileSize);
+  }
+
+  // The whole shape at its natural size.
+  public BufferedImage render(Shape root, Color background) {
+    return render(root, visibleArea(root), 1.0, background);
+  }
+
+  // The given area of the drawing, in shape coordinates, scaled into an ARGB image. A null
+  // background leaves the image transparent.
+  public BufferedImage render(Shape root, Rectangle area, double scale, Color background) {
+    final int width = Math.max(1, (int) Math.ceil(area.width * scale));
+    final int height = Math.max(1, (int) Math.ceil(area.height * scale));
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    // Validates every cached group bounds up front, so the tile walks below only read them.
+    root.getX();
+    final List<ForkJoinTask<?>> tiles = new ArrayList<>();
+    for (int tileY = 0; tileY < height; tileY += tileSize) {
+      for (int tileX = 0; tileX < width; tileX += tileSize) {
+        final Rectangle tile = new Rectangle(tileX, tileY,
+            Math.min(tileSize, width - tileX), Math.min(tileSize, height - tileY));
+        tiles.add(ForkJoinTask.adapt(() -> renderTile(root, area, scale, background, tile, image)));
+      }
+    }
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tiles)));
+    return image;
+  }
+
+  // Packed ARGB pixels, row by row.
+  public int[] renderPixels(Shape root, Rectangle area, double scale, Color background) {
+    return ((DataBufferInt) render(root, area, scale, background).getRaster().getDataBuffer()).getData();
+  }
+
+  public void writePng(Shape root, Rectangle area, double scale, Color background, Path file) throws IOException {
+    if (!ImageIO.write(render(root, area, scale, background), "png", file.toFile())) {
+      throw new IOException("No PNG writer available");
+    }
+  }
+
+  // The shape's bounds widened by what its painting may spill over them.
+  public static Rectangle visibleArea(Shape root) {
+    final int margin = CompoundShape.PAINT_MARGIN;
+    return new Rectangle(root.getX() - margin, root.getY() - margin,
+        root.getWidth() + 2 * margin + 1, root.getHeight() + 2 * margin + 1);
+  }
+
+  private void renderTile(Shape root, Rectangle area, double scale, Color background, Rectangle tile,
+                          BufferedImage target) {
+    final BufferedImage tileImage = new BufferedImage(tile.width, tile.height, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D graphics = tileImage.createGraphics();
+    if (background != null) {
+      graphics.setColor(background);
+      graphics.fillRect(0, 0, tile.width, tile.height);
+    }
+    graphics.translate(-tile.x, -tile.y);
+    graphics.scale(scale, scale);
+    graphics.translate(-area.x, -area.y);
+
+    // The tile in shape coordinates, widened by the paint margin and a pixel of rounding.
+    final int margin = CompoundShape.PAINT_MARGIN + 1;
+    final int left = area.x + (int) Math.floor(tile.x / scale) - margin;
+    final int top = area.y + (int) Math.floor(tile.y / scale) - margin;
+    final int right = area.x + (int) Math.ceil((tile.x + tile.width) / scale) + margin;
+    final int bottom = area.y + (int) Math.ceil((tile.y + tile.height) / scale) + margin;
+    graphics.clipRect(left, top, right - left, bottom - top);
+    new ShapeTraversal().within(root, left, top, right - left, bottom - top, shape -> {
+      if (shape instanceof CompoundShape) {
+        ((CompoundShape) shape).paintSelectionOutline(graphics);
+      } else {
+        shape.paint(graphics);
+      }
+    });
+    graphics.dispose();
+    target.getRaster().setRect(tile.x, tile.y, tileImage.getRaster());
+  }
+}
@@ -0,0 +1,107 @@
+package org.composite.render;
+
+import org.composite.io.SceneReader;
+import org.composite.io.SceneWriter;
+import org.composite.shapes.Circle;
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Rectangle;
+import org.composite.shapes.Shape;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Renders a batch of generated scenes to PNG thumbnails with the {@link HeadlessRenderer} and
+ * reports the throughput; runs without a display.
+ *
+ * <p>Options (all {@code --name=value}): out (directory), scenes, shapes (per scene), size
+ * (longest thumbnail side in pixels), tile, seed, save (also write each scene as a scene file),
+ * scene (render one saved scene file instead of generating any).
+ */
+public final class ThumbnailCli {
+  private static final Color[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, Color.MAGENTA, Color.DARK_GRAY};
+
+  private ThumbnailCli() {
+    super();
+  }
+
+  public static void main(String[] args) throws IOException {
+    System.setProperty("java.awt.headless", "true");
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(option[0], option.length > 1 ? option[1] : "true");
+    }
+    final Path out = Paths.get(options.getOrDefault("out", "thumbnails"));
+    final int scenes = Integer.parseInt(options.getOrDefault("scenes", "100"));
+    final int shapes = Integer.parseInt(options.getOrDefault("shapes", "2000"));
+    final int size = Integer.parseInt(options.getOrDefault("size", "256"));
+    final int tile = Integer.parseInt(options.getOrDefault("tile", String.valueOf(HeadlessRenderer.DEFAULT_TILE_SIZE)));
+    final SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "42")));
+
+    Files.createDirectories(out);
+    final HeadlessRenderer renderer = new HeadlessRenderer(ForkJoinPool.commonPool(), tile);
+    if (options.containsKey("scene")) {
+      final Path file = Paths.get(options.get("scene"));
+      final long start = System.nanoTime();
+      final CompoundShape drawing = SceneReader.map(file);
+      final java.awt.Rectangle area = HeadlessRenderer.visibleArea(drawing);
+      final double scale = Math.min(1.0, (double) size / Math.max(area.width, area.height));
+      renderer.writePng(drawing, area, scale, Color.WHITE, out.resolve(file.getFileName() + ".png"));
+      System.out.printf("Rendered %s into %s in %.2fs%n", file, out, (System.nanoTime() - start) / 1e9);
+      return;
+    }
+    final boolean save = Boolean.parseBoolean(options.getOrDefault("save", "false"));
+    final long start = System.nanoTime();
+    for (int scene = 0; scene < scenes; scene++) {
+      final CompoundShape drawing = generateScene(random, shapes);
+      if (save) {
+        SceneWriter.write(drawing, out.resolve(String.format("scene-%05d.cscn", scene)));
+      }
+      final java.awt.Rectangle area = HeadlessRenderer.visibleArea(drawing);
+      final double scale = Math.min(1.0, (double) size / Math.max(area.width, area.height));
+      renderer.writePng(drawing, area, scale, Color.WHITE, out.resolve(String.format("scene-%05d.png", scene)));
+    }
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Rendered %d thumbnails of %d shapes into %s in %.2fs (%.0f per minute)%n",
+        scenes, shapes, out, seconds, scenes / seconds * 60);
+  }
+
+  // Groups of a few dozen circles, rectangles and dots scattered over a 4000x3000 canvas.
+  private static CompoundShape generateScene(SplittableRandom random, int shapeCount) {
+    final CompoundShape drawing = new CompoundShape();
+    int remaining = shapeCount;
+    while (remaining > 0) {
+      final int groupSize = Math.min(remaining, 1 + random.nextInt(50));
+      final int originX = random.nextInt(3800);
+      final int originY = random.nextInt(2800);
+      final CompoundShape group = new CompoundShape();
+      for (int i = 0; i < groupSize; i++) {
+        group.add(randomShape(random, originX + random.nextInt(200), originY + random.nextInt(200)));
+      }
+      drawing.add(group);
+      remaining -= groupSize;
+    }
+    return drawing;
+  }
+
+  private static Shape randomShape(SplittableRandom random, int x, int y) {
+    final Color color = COLORS[random.nextInt(COLORS.length)];
+    switch (random.nextInt(3)) {
+      case 0:
+        return new Circle(x, y, 2 + random.nextInt(30), color);
+      case 1:
+        return new Rectangle(x, y, 2 + random.nextInt(60), 2 + random.nextInt(60), color);
+      default:
+        return new Dot(x, y, color);
+    }
+  }
+}
@@ -6,10 +6,12 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 
 abstract class BaseShape implements Shape {
-  public int x;
-  public int y;
-  public Color color;
+  protected int x;
+  protected int y;
+  protected Color color;
   private boolean selected = false;
+  // The compound this shape was last added to; told when our bounds or looks change.
+  CompoundShape parent;
 
   BaseShape(int x, int y, Color color) {
     super();
@@ -28,6 +30,15 @@ abstract class BaseShape implements Shape {
     return y;
   }
 
+  public Color getColor() {
+    return color;
+  }
+
+  public void setColor(Color color) {
+    this.color = color;
+    invalidateContent();
+  }
+
   @Override
   public int getWidth() {
     return 0;
@@ -40,8 +51,34 @@ abstract class BaseShape implements Shape {
 
   @Override
   public void move(int x, int y) {
-    this.x += x;
-    this.y += y;
+    translate(x, y);
+    invalidateBounds();
+  }
+
+  // Shifts the shape, and anything it caches about its own geometry, without notifying anyone.
+  // Whoever moves a subtree this way calls notifyMoved() on its root once afterwards.
+  void translate(int dx, int dy) {
+    this.x += dx;
+    this.y += dy;
+  }
+
+  // Tells the parent our bounds changed, leaving the (already shifted) caches of this shape alone.
+  final void notifyMoved() {
+    if (parent != null) {
+      parent.childBoundsChanged(this);
+    }
+  }
+
+  // Must be called whenever the shape would paint differently at the same bounds.
+  void invalidateContent() {
+    if (parent != null) {
+      parent.childContentChanged();
+    }
+  }
+
+  // Must be called whenever getX/getY/getWidth/getHeight may have changed.
+  void invalidateBounds() {
+    notifyMoved();
   }
 
   @Override
@@ -52,12 +89,23 @@ abstract class BaseShape implements Shape {
 
   @Override
   public void select() {
-    selected = true;
+    if (!selected) {
+      selected = true;
+      invalidateContent();
+    }
   }
 
   @Override
   public void unSelect() {
-    selected = false;
+    unSelectSelf();
+  }
+
+  // Clears this shape's own flag only; groups use it to unselect their subtree without recursion.
+  void unSelectSelf() {
+    if (selected) {
+      selected = false;
+      invalidateContent();
+    }
   }
 
   @Override
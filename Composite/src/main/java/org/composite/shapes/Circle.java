@@ -4,13 +4,22 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 public class Circle extends BaseShape {
-  public int radius;
+  private int radius;
 
   public Circle(int x, int y, int radius, Color color) {
     super(x, y, color);
     this.radius = radius;
   }
 
+  public int getRadius() {
+    return radius;
+  }
+
+  public void setRadius(int radius) {
+    this.radius = radius;
+    invalidateBounds();
+  }
+
   @Override
   public int getWidth() {
     return radius * 2;
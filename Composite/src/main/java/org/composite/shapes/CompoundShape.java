@@ -2,107 +2,329 @@ package org.composite.shapes;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class CompoundShape extends BaseShape {
+  // Children are expected to change only through add/remove/clear, which keep the cached
+  // bounds below in sync. Shapes that do not extend BaseShape cannot report their own changes.
   protected List<Shape> children = new ArrayList<>();
+  private boolean boundsValid = false;
+  private int minX;
+  private int minY;
+  private int width;
+  private int height;
+  // How far a shape may draw outside its bounds: selection outlines and the dot offset.
+  public static final int PAINT_MARGIN = 2;
+  // Groups with more than INDEX_THRESHOLD children get a spatial index on their first hit test.
+  // Children that report a change are only re-indexed on the next query.
+  private static final int INDEX_THRESHOLD = 32;
+  private QuadTree index;
+  private final Set<Shape> movedChildren = Collections.newSetFromMap(new IdentityHashMap<>());
+  // Set when something below changes and cleared by paint. A layer is only ever rendered from a
+  // fully clean subtree, so the first change below it always reaches it and drops the layer.
+  private boolean contentDirty = true;
+  private LayerCache layerCache;
+  // Reused by unSelect so deselecting does not allocate a traversal per call.
+  private static final ThreadLocal<ShapeTraversal> UNSELECT_TRAVERSAL = ThreadLocal.withInitial(ShapeTraversal::new);
 
   public CompoundShape(Shape... components) {
     super(0, 0, Color.BLACK);
     add(components);
   }
 
+  // A group whose bounds and child count are known but whose children are only read from the
+  // loader when something needs them; painting with a clip that misses it never does.
+  public static CompoundShape lazy(int x, int y, int width, int height, int childCount,
+                                   Supplier<List<Shape>> loader) {
+    final CompoundShape group = new CompoundShape();
+    group.children = new LazyChildren(group, childCount, loader);
+    group.cacheBounds(x, y, x + width, y + height);
+    return group;
+  }
+
+  public boolean isLoaded() {
+    return !(children instanceof LazyChildren) || ((LazyChildren) children).isLoaded();
+  }
+
   public void add(Shape component) {
     children.add(component);
+    attach(component);
+    invalidateBounds();
   }
 
   public void add(Shape... components) {
     children.addAll(Arrays.asList(components));
+    for (Shape component : components) {
+      attach(component);
+    }
+    invalidateBounds();
+  }
+
+  // Inserting anywhere but the end drops the spatial index, which relies on children order
+  // matching insertion order; it is rebuilt on the next query.
+  public void add(int position, Shape component) {
+    if (position < children.size()) {
+      index = null;
+      movedChildren.clear();
+    }
+    children.add(position, component);
+    attach(component);
+    invalidateBounds();
+  }
+
+  public Shape removeAt(int index) {
+    final Shape component = children.remove(index);
+    detach(component);
+    invalidateBounds();
+    return component;
   }
 
   public void remove(Shape component) {
-    children.remove(component);
+    if (children.remove(component)) {
+      detach(component);
+      invalidateBounds();
+    }
   }
 
   public void remove(Shape... components) {
-    children.removeAll(Arrays.asList(components));
+    if (children.removeAll(Arrays.asList(components))) {
+      for (Shape component : components) {
+        detach(component);
+      }
+      invalidateBounds();
+    }
+  }
+
+  public int childCount() {
+    return children.size();
+  }
+
+  public Shape childAt(int index) {
+    return children.get(index);
   }
 
   public void clear() {
+    for (Shape child : children) {
+      if (child instanceof BaseShape && ((BaseShape) child).parent == this) {
+        ((BaseShape) child).parent = null;
+      }
+    }
     children.clear();
+    index = null;
+    movedChildren.clear();
+    invalidateBounds();
   }
 
-  @Override
-  public int getX() {
-    if (children.isEmpty()) {
-      return 0;
+  private void attach(Shape component) {
+    if (component instanceof BaseShape) {
+      ((BaseShape) component).parent = this;
     }
-    int minX = children.get(0).getX();
-    for (Shape child : children) {
-      if (child.getX() < minX) {
-        minX = child.getX();
-      }
+    if (index != null) {
+      index.insert(component);
     }
-    return minX;
   }
 
-  @Override
-  public int getY() {
-    if (children.isEmpty()) {
-      return 0;
+  private void detach(Shape component) {
+    if (children.contains(component)) {
+      return;
     }
-    int minY = children.get(0).getY();
-    for (Shape child : children) {
-      if (child.getY() < minY) {
-        minY = child.getY();
+    if (component instanceof BaseShape && ((BaseShape) component).parent == this) {
+      ((BaseShape) component).parent = null;
+    }
+    if (index != null) {
+      index.remove(component);
+      movedChildren.remove(component);
+    }
+  }
+
+  void childBoundsChanged(Shape child) {
+    if (index != null) {
+      movedChildren.add(child);
+    }
+    childContentChanged();
+    invalidateBounds();
+  }
+
+  void childContentChanged() {
+    if (!contentDirty) {
+      contentDirty = true;
+      if (layerCache != null) {
+        layerCache.remove(this);
       }
+      invalidateContent();
     }
-    return minY;
   }
 
-  @Override
-  public int getWidth() {
-    if (children.isEmpty()) {
-      return 0;
+  // Paints the children through a raster layer kept in the given cache until something below
+  // this group changes; null paints them directly. The selection outline is never rasterised.
+  public void setLayerCache(LayerCache layerCache) {
+    if (this.layerCache != null) {
+      this.layerCache.remove(this);
     }
-    int maxX = 0;
-    final int minX = getX();
-    for (Shape child : children) {
-      final int childRightExtent = child.getX() - minX + child.getWidth();
-      if (childRightExtent > maxX) {
-        maxX = childRightExtent;
+    this.layerCache = layerCache;
+  }
+
+  public LayerCache getLayerCache() {
+    return layerCache;
+  }
+
+  // Brings the index up to date, building it if the group has grown large enough.
+  // Returns false if the group is small and should simply be scanned.
+  private boolean refreshIndex() {
+    if (index == null) {
+      if (children.size() <= INDEX_THRESHOLD) {
+        return false;
       }
+      index = new QuadTree();
+      for (Shape child : children) {
+        index.insert(child);
+      }
+      return true;
+    }
+    for (Shape child : movedChildren) {
+      index.update(child);
     }
-    return maxX;
+    movedChildren.clear();
+    return true;
   }
 
+  // Indexed children whose bounding box meets the rectangle (edges included), in children order.
+  private List<QuadTree.Entry> candidatesIn(long left, long top, long right, long bottom) {
+    final List<QuadTree.Entry> candidates = new ArrayList<>();
+    index.query(left, top, right, bottom, candidates);
+    candidates.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+    return candidates;
+  }
+
+  // A dirty compound always has dirty ancestors, so invalidation stops at the first one that
+  // already is; moving a whole group therefore costs one walk up the tree, not one per child.
   @Override
-  public int getHeight() {
+  void invalidateBounds() {
+    childContentChanged();
+    if (boundsValid) {
+      boundsValid = false;
+      super.invalidateBounds();
+    }
+  }
+
+  private void validateBounds() {
+    if (boundsValid) {
+      return;
+    }
     if (children.isEmpty()) {
-      return 0;
+      cacheBounds(0, 0, 0, 0);
+      return;
     }
-    int maxY = 0;
-    final int minY = getY();
+    int left = Integer.MAX_VALUE;
+    int top = Integer.MAX_VALUE;
+    int right = Integer.MIN_VALUE;
+    int bottom = Integer.MIN_VALUE;
     for (Shape child : children) {
-      final int childBottomExtent = child.getY() - minY + child.getHeight();
-      if (childBottomExtent > maxY) {
-        maxY = childBottomExtent;
-      }
+      final int childX = child.getX();
+      final int childY = child.getY();
+      left = Math.min(left, childX);
+      top = Math.min(top, childY);
+      right = Math.max(right, childX + child.getWidth());
+      bottom = Math.max(bottom, childY + child.getHeight());
     }
-    return maxY;
+    cacheBounds(left, top, right, bottom);
+  }
+
+  @Override
+  public int getX() {
+    validateBounds();
+    return minX;
+  }
+
+  @Override
+  public int getY() {
+    validateBounds();
+    return minY;
+  }
+
+  @Override
+  public int getWidth() {
+    validateBounds();
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    validateBounds();
+    return height;
   }
 
   @Override
   public void move(int x, int y) {
+    translate(x, y);
+    notifyMoved();
+  }
+
+  // Moving a group as a whole keeps its bounds, index and layer valid: they are shifted instead.
+  @Override
+  void translate(int dx, int dy) {
+    translateOwnState(dx, dy);
+    if (deferTranslate(dx, dy)) {
+      return;
+    }
     for (Shape child : children) {
-      child.move(x, y);
+      translateChild(child, dx, dy);
+    }
+  }
+
+  // Records the move for children that are not loaded yet; false if they are loaded.
+  boolean deferTranslate(int dx, int dy) {
+    return children instanceof LazyChildren && ((LazyChildren) children).deferTranslate(dx, dy);
+  }
+
+  void translateOwnState(int dx, int dy) {
+    if (boundsValid) {
+      minX += dx;
+      minY += dy;
+    }
+    if (index != null) {
+      index.translate(dx, dy);
+    }
+  }
+
+  static void translateChild(Shape child, int dx, int dy) {
+    if (child instanceof BaseShape) {
+      ((BaseShape) child).translate(dx, dy);
+    } else {
+      child.move(dx, dy);
     }
   }
 
+  boolean hasValidBounds() {
+    return boundsValid;
+  }
+
+  void cacheBounds(int left, int top, int right, int bottom) {
+    minX = left;
+    minY = top;
+    width = right - left;
+    height = bottom - top;
+    boundsValid = true;
+  }
+
   @Override
   public boolean isInsideBounds(int x, int y) {
+    if (refreshIndex()) {
+      for (QuadTree.Entry candidate : candidatesIn(x, y, x, y)) {
+        if (candidate.shape.isInsideBounds(x, y)) {
+          return true;
+        }
+      }
+      return false;
+    }
     for (Shape child : children) {
       if (child.isInsideBounds(x, y)) {
         return true;
@@ -116,39 +338,170 @@ public class CompoundShape extends BaseShape {
     super.select();
   }
 
+  // Walks the subtree with an explicit stack rather than recursing into each child's unSelect.
   @Override
   public void unSelect() {
-    super.unSelect();
-    for (Shape child : children) {
-      child.unSelect();
+    ShapeTraversal traversal = UNSELECT_TRAVERSAL.get();
+    // A shape that is not a BaseShape may unselect another group from inside this walk.
+    if (traversal.isWalking()) {
+      traversal = new ShapeTraversal();
     }
+    traversal.preOrder(this, shape -> {
+      if (shape instanceof BaseShape) {
+        ((BaseShape) shape).unSelectSelf();
+      } else {
+        shape.unSelect();
+      }
+    });
   }
 
   public boolean selectChildAt(int x, int y) {
+    final Shape picked = pickChildAt(x, y);
+    if (picked == null) {
+      return false;
+    }
+    picked.select();
+    return true;
+  }
+
+  // The shape selectChildAt would select: the first child containing the point, or the deepest
+  // shape under the point when that child is a group. Null if no child is hit.
+  public Shape pickChildAt(int x, int y) {
+    if (refreshIndex()) {
+      for (QuadTree.Entry candidate : candidatesIn(x, y, x, y)) {
+        final Shape picked = pickIfInside(candidate.shape, x, y);
+        if (picked != null) {
+          return picked;
+        }
+      }
+      return null;
+    }
     for (Shape child : children) {
-      if (child.isInsideBounds(x, y)) {
-        if (child instanceof CompoundShape) {
-          if (((CompoundShape) child).selectChildAt(x, y)) {
-            return true;
-          }
+      final Shape picked = pickIfInside(child, x, y);
+      if (picked != null) {
+        return picked;
+      }
+    }
+    return null;
+  }
+
+  private static Shape pickIfInside(Shape child, int x, int y) {
+    if (!child.isInsideBounds(x, y)) {
+      return null;
+    }
+    if (child instanceof CompoundShape) {
+      final Shape picked = ((CompoundShape) child).pickChildAt(x, y);
+      if (picked != null) {
+        return picked;
+      }
+    } else if (child instanceof ShapeStore) {
+      return ((ShapeStore) child).pickChildAt(x, y);
+    }
+    return child;
+  }
+
+  // Direct children lying entirely inside the rectangle, in children order.
+  public List<Shape> getChildrenWithin(int x, int y, int width, int height) {
+    final List<Shape> result = new ArrayList<>();
+    if (refreshIndex()) {
+      for (QuadTree.Entry candidate : candidatesIn(x, y, (long) x + width, (long) y + height)) {
+        if (isWithin(candidate.shape, x, y, width, height)) {
+          result.add(candidate.shape);
         }
-        child.select();
-        return true;
       }
+      return result;
     }
-    return false;
+    for (Shape child : children) {
+      if (isWithin(child, x, y, width, height)) {
+        result.add(child);
+      }
+    }
+    return result;
+  }
+
+  // Marquee selection: selects the direct children lying entirely inside the rectangle.
+  public int selectChildrenWithin(int x, int y, int width, int height) {
+    final List<Shape> within = getChildrenWithin(x, y, width, height);
+    for (Shape child : within) {
+      child.select();
+    }
+    return within.size();
+  }
+
+  private static boolean isWithin(Shape child, int x, int y, int width, int height) {
+    return child.getX() >= x && child.getY() >= y
+        && (long) child.getX() + child.getWidth() <= (long) x + width
+        && (long) child.getY() + child.getHeight() <= (long) y + height;
   }
 
+  // Children are skipped when their bounds, widened by PAINT_MARGIN, miss the clip.
   @Override
   public void paint(Graphics graphics) {
+    paintSelectionOutline(graphics);
+    if (layerCache == null || !paintLayer(graphics)) {
+      paintChildren(graphics);
+    }
+    contentDirty = false;
+  }
+
+  // The dashed outline paint() draws around a selected group before its children.
+  public void paintSelectionOutline(Graphics graphics) {
     if (isSelected()) {
       enableSelectionStyle(graphics);
       graphics.drawRect(getX() - 1, getY() - 1, getWidth() + 1, getHeight() + 1);
       disableSelectionStyle(graphics);
     }
+  }
 
-    for (Shape child : children) {
-      child.paint(graphics);
+  private void paintChildren(Graphics graphics) {
+    final java.awt.Rectangle clip = graphics.getClipBounds();
+    if (clip == null) {
+      for (Shape child : children) {
+        child.paint(graphics);
+      }
+    } else if (refreshIndex()) {
+      for (QuadTree.Entry candidate : candidatesIn((long) clip.x - PAINT_MARGIN, (long) clip.y - PAINT_MARGIN,
+          (long) clip.x + clip.width + PAINT_MARGIN, (long) clip.y + clip.height + PAINT_MARGIN)) {
+        candidate.shape.paint(graphics);
+      }
+    } else {
+      for (Shape child : children) {
+        if (intersectsClip(child, clip)) {
+          child.paint(graphics);
+        }
+      }
+    }
+  }
+
+  // Blits the cached layer, rendering it first if needed. False if it does not fit the budget.
+  private boolean paintLayer(Graphics graphics) {
+    final int layerX = getX() - PAINT_MARGIN;
+    final int layerY = getY() - PAINT_MARGIN;
+    BufferedImage layer = layerCache.get(this);
+    if (layer == null) {
+      final long layerWidth = getWidth() + 2L * PAINT_MARGIN + 1;
+      final long layerHeight = getHeight() + 2L * PAINT_MARGIN + 1;
+      if (layerWidth * layerHeight * 4 > layerCache.getMaxBytes()) {
+        return false;
+      }
+      layer = new BufferedImage((int) layerWidth, (int) layerHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+      final Graphics2D layerGraphics = layer.createGraphics();
+      if (graphics instanceof Graphics2D) {
+        layerGraphics.setRenderingHints(((Graphics2D) graphics).getRenderingHints());
+      }
+      layerGraphics.translate(-layerX, -layerY);
+      paintChildren(layerGraphics);
+      layerGraphics.dispose();
+      layerCache.put(this, layer);
     }
+    graphics.drawImage(layer, layerX, layerY, null);
+    return true;
+  }
+
+  private static boolean intersectsClip(Shape shape, java.awt.Rectangle clip) {
+    return (long) shape.getX() - PAINT_MARGIN <= (long) clip.x + clip.width
+        && (long) shape.getX() + shape.getWidth() + PAINT_MARGIN >= clip.x
+        && (long) shape.getY() - PAINT_MARGIN <= (long) clip.y + clip.height
+        && (long) shape.getY() + shape.getHeight() + PAINT_MARGIN >= clip.y;
   }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package org.composite.shapes;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rasterised layers of compound shapes, kept under a byte budget with least-recently-painted
+ * eviction. One cache is usually shared by every group of a drawing; see
+ * {@link CompoundShape#setLayerCache(LayerCache)}.
+ */
+public class LayerCache {
+  private final long maxBytes;
+  private long usedBytes = 0;
+  private final LinkedHashMap<CompoundShape, BufferedImage> layers = new LinkedHashMap<>(16, 0.75f, true);
+
+  public LayerCache(long maxBytes) {
+    super();
+    this.maxBytes = maxBytes;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public int size() {
+    return layers.size();
+  }
+
+  public void clear() {
+    layers.clear();
+    usedBytes = 0;
+  }
+
+  BufferedImage get(CompoundShape shape) {
+    return layers.get(shape);
+  }
+
+  // Returns false, caching nothing, if the layer alone is larger than the budget.
+  boolean put(CompoundShape shape, BufferedImage layer) {
+    final long bytes = bytesOf(layer);
+    if (bytes > maxBytes) {
+      return false;
+    }
+    remove(shape);
+    final Iterator<Map.Entry<CompoundShape, BufferedImage>> eldest = layers.entrySet().iterator();
+    while (usedBytes + bytes > maxBytes && eldest.hasNext()) {
+      usedBytes -= bytesOf(eldest.next().getValue());
+      eldest.remove();
+    }
+    layers.put(shape, layer);
+    usedBytes += bytes;
+    return true;
+  }
+
+  void remove(CompoundShape shape) {
+    final BufferedImage layer = layers.remove(shape);
+    if (layer != null) {
+      usedBytes -= bytesOf(layer);
+    }
+  }
+
+  private static long bytesOf(BufferedImage layer) {
+    return (long) layer.getWidth() * layer.getHeight() * 4;
+  }
+}
@@ -0,0 +1,96 @@
+package org.composite.shapes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+// Children list of a lazily loaded group: its size is known up front and everything else loads
+// the children on first use, attaching them to the group. Moves before then are only recorded.
+// Loading is synchronised because parallel renders may reach the same group from several tiles.
+final class LazyChildren extends AbstractList<Shape> implements RandomAccess {
+  private final CompoundShape owner;
+  private final int knownSize;
+  private Supplier<List<Shape>> loader;
+  private volatile List<Shape> loaded;
+  // Guarded by this, like the load itself.
+  private int pendingDx = 0;
+  private int pendingDy = 0;
+
+  LazyChildren(CompoundShape owner, int knownSize, Supplier<List<Shape>> loader) {
+    super();
+    this.owner = owner;
+    this.knownSize = knownSize;
+    this.loader = loader;
+  }
+
+  boolean isLoaded() {
+    return loaded != null;
+  }
+
+  // False if the children were loaded in the meantime, in which case the caller moves them.
+  synchronized boolean deferTranslate(int dx, int dy) {
+    if (loaded != null) {
+      return false;
+    }
+    pendingDx += dx;
+    pendingDy += dy;
+    return true;
+  }
+
+  private List<Shape> loaded() {
+    final List<Shape> current = loaded;
+    return current != null ? current : load();
+  }
+
+  private synchronized List<Shape> load() {
+    if (loaded == null) {
+      final List<Shape> children = new ArrayList<>(loader.get());
+      loader = null;
+      for (Shape child : children) {
+        if (child instanceof BaseShape) {
+          ((BaseShape) child).parent = owner;
+        }
+        if (pendingDx != 0 || pendingDy != 0) {
+          CompoundShape.translateChild(child, pendingDx, pendingDy);
+        }
+      }
+      loaded = children;
+    }
+    return loaded;
+  }
+
+  @Override
+  public int size() {
+    return loaded == null ? knownSize : loaded.size();
+  }
+
+  @Override
+  public Shape get(int index) {
+    return loaded().get(index);
+  }
+
+  @Override
+  public Shape set(int index, Shape element) {
+    return loaded().set(index, element);
+  }
+
+  @Override
+  public void add(int index, Shape element) {
+    loaded().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public Shape remove(int index) {
+    modCount++;
+    return loaded().remove(index);
+  }
+
+  @Override
+  public void clear() {
+    modCount++;
+    loaded().clear();
+  }
+}
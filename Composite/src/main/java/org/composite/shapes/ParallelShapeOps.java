@@ -0,0 +1,299 @@
+package org.composite.shapes;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Fork-join versions of the bulk tree operations. Groups and stores are split into ranges of at
+ * most {@code threshold} children or primitives, so small groups stay on one thread while large
+ * ones spread over the pool. Results match the sequential methods. The tree must not be changed
+ * by other threads while an operation runs.
+ */
+public final class ParallelShapeOps {
+  public static final int DEFAULT_THRESHOLD = 2048;
+
+  private final ForkJoinPool pool;
+  private final int threshold;
+
+  public ParallelShapeOps() {
+    this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  public ParallelShapeOps(ForkJoinPool pool, int threshold) {
+    super();
+    this.pool = pool;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  // Same as shape.move(dx, dy). Only the moved shape's parent is notified, once.
+  public void move(Shape shape, int dx, int dy) {
+    if (shape instanceof CompoundShape || shape instanceof ShapeStore) {
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          translate(shape, dx, dy);
+        }
+      });
+      ((BaseShape) shape).notifyMoved();
+    } else {
+      shape.move(dx, dy);
+    }
+  }
+
+  // The shape's bounding box, computing and caching the bounds of stale groups in parallel.
+  public java.awt.Rectangle bounds(Shape shape) {
+    final int[] bounds = pool.invoke(new RecursiveTask<int[]>() {
+      @Override
+      protected int[] compute() {
+        return boundsOf(shape);
+      }
+    });
+    return new java.awt.Rectangle(bounds[0], bounds[1], bounds[2] - bounds[0], bounds[3] - bounds[1]);
+  }
+
+  // Same result as group.pickChildAt(x, y), testing the children of large groups in parallel.
+  public Shape pickChildAt(Shape group, int x, int y) {
+    return pool.invoke(new RecursiveTask<Shape>() {
+      @Override
+      protected Shape compute() {
+        return pick(group, x, y);
+      }
+    });
+  }
+
+  // Calls action on the shape and on every shape below it, store primitives included, in no
+  // particular order and from several threads at once.
+  public void forEach(Shape shape, Consumer<? super Shape> action) {
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        visit(shape, action);
+      }
+    });
+  }
+
+  private void translate(Shape shape, int dx, int dy) {
+    if (shape instanceof CompoundShape) {
+      final CompoundShape group = (CompoundShape) shape;
+      group.translateOwnState(dx, dy);
+      if (!group.deferTranslate(dx, dy)) {
+        new TranslateRange(group, 0, group.children.size(), dx, dy).compute();
+      }
+    } else if (shape instanceof ShapeStore) {
+      final ShapeStore store = (ShapeStore) shape;
+      store.translateOwnState(dx, dy);
+      new TranslateRange(store, 0, store.size(), dx, dy).compute();
+    } else {
+      CompoundShape.translateChild(shape, dx, dy);
+    }
+  }
+
+  // Like CompoundShape.validateBounds, an empty group or store counts as the box (0, 0, 0, 0).
+  private int[] boundsOf(Shape shape) {
+    if (shape instanceof CompoundShape && !((CompoundShape) shape).hasValidBounds()) {
+      final CompoundShape group = (CompoundShape) shape;
+      final int[] bounds = new BoundsOfRange(group, 0, group.children.size()).compute();
+      if (bounds == null) {
+        group.cacheBounds(0, 0, 0, 0);
+      } else {
+        group.cacheBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+      }
+    } else if (shape instanceof ShapeStore && !((ShapeStore) shape).hasValidBounds()) {
+      final ShapeStore store = (ShapeStore) shape;
+      final int[] bounds = new BoundsOfRange(store, 0, store.size()).compute();
+      if (bounds == null) {
+        store.cacheBounds(0, 0, 0, 0);
+      } else {
+        store.cacheBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+      }
+    }
+    return new int[] {shape.getX(), shape.getY(), shape.getX() + shape.getWidth(), shape.getY() + shape.getHeight()};
+  }
+
+  private Shape pick(Shape shape, int x, int y) {
+    if (shape instanceof CompoundShape) {
+      final List<Shape> children = ((CompoundShape) shape).children;
+      final int index = new FirstHit(shape, 0, children.size(), x, y).compute();
+      if (index < 0) {
+        return null;
+      }
+      final Shape child = children.get(index);
+      final Shape picked = pick(child, x, y);
+      return picked != null ? picked : child;
+    } else if (shape instanceof ShapeStore) {
+      final ShapeStore store = (ShapeStore) shape;
+      final int index = new FirstHit(store, 0, store.size(), x, y).compute();
+      return index < 0 ? null : store.get(index);
+    }
+    return null;
+  }
+
+  private void visit(Shape shape, Consumer<? super Shape> action) {
+    action.accept(shape);
+    if (shape instanceof CompoundShape) {
+      new VisitRange(shape, 0, ((CompoundShape) shape).children.size(), action).compute();
+    } else if (shape instanceof ShapeStore) {
+      new VisitRange(shape, 0, ((ShapeStore) shape).size(), action).compute();
+    }
+  }
+
+  private static int[] union(int[] a, int[] b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    return new int[] {Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3])};
+  }
+
+  // Children [from, to) of a group, or primitives [from, to) of a store.
+  private final class TranslateRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Shape owner;
+    private final int from;
+    private final int to;
+    private final int dx;
+    private final int dy;
+
+    private TranslateRange(Shape owner, int from, int to, int dx, int dy) {
+      super();
+      this.owner = owner;
+      this.from = from;
+      this.to = to;
+      this.dx = dx;
+      this.dy = dy;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > threshold) {
+        final int mid = (from + to) >>> 1;
+        invokeAll(new TranslateRange(owner, from, mid, dx, dy), new TranslateRange(owner, mid, to, dx, dy));
+      } else if (owner instanceof ShapeStore) {
+        ((ShapeStore) owner).translateRange(from, to, dx, dy);
+      } else {
+        final List<Shape> children = ((CompoundShape) owner).children;
+        for (int i = from; i < to; i++) {
+          translate(children.get(i), dx, dy);
+        }
+      }
+    }
+  }
+
+  private final class BoundsOfRange extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final Shape owner;
+    private final int from;
+    private final int to;
+
+    private BoundsOfRange(Shape owner, int from, int to) {
+      super();
+      this.owner = owner;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected int[] compute() {
+      if (to - from > threshold) {
+        final int mid = (from + to) >>> 1;
+        final BoundsOfRange right = new BoundsOfRange(owner, mid, to);
+        right.fork();
+        final int[] left = new BoundsOfRange(owner, from, mid).compute();
+        return union(left, right.join());
+      }
+      if (owner instanceof ShapeStore) {
+        return ((ShapeStore) owner).boundsOfRange(from, to);
+      }
+      final List<Shape> children = ((CompoundShape) owner).children;
+      int[] bounds = null;
+      for (int i = from; i < to; i++) {
+        bounds = union(bounds, boundsOf(children.get(i)));
+      }
+      return bounds;
+    }
+  }
+
+  // Lowest index in [from, to) whose child or primitive contains the point, or -1.
+  private final class FirstHit extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final Shape owner;
+    private final int from;
+    private final int to;
+    private final int x;
+    private final int y;
+
+    private FirstHit(Shape owner, int from, int to, int x, int y) {
+      super();
+      this.owner = owner;
+      this.from = from;
+      this.to = to;
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (to - from > threshold) {
+        final int mid = (from + to) >>> 1;
+        final FirstHit right = new FirstHit(owner, mid, to, x, y);
+        right.fork();
+        final int left = new FirstHit(owner, from, mid, x, y).compute();
+        final int rightResult = right.join();
+        return left >= 0 ? left : rightResult;
+      }
+      if (owner instanceof ShapeStore) {
+        return ((ShapeStore) owner).indexAt(from, to, x, y);
+      }
+      final List<Shape> children = ((CompoundShape) owner).children;
+      for (int i = from; i < to; i++) {
+        if (children.get(i).isInsideBounds(x, y)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private final class VisitRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Shape owner;
+    private final int from;
+    private final int to;
+    private final Consumer<? super Shape> action;
+
+    private VisitRange(Shape owner, int from, int to, Consumer<? super Shape> action) {
+      super();
+      this.owner = owner;
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > threshold) {
+        final int mid = (from + to) >>> 1;
+        invokeAll(new VisitRange(owner, from, mid, action), new VisitRange(owner, mid, to, action));
+      } else if (owner instanceof ShapeStore) {
+        final ShapeStore store = (ShapeStore) owner;
+        for (int i = from; i < to; i++) {
+          action.accept(store.get(i));
+        }
+      } else {
+        final List<Shape> children = ((CompoundShape) owner).children;
+        for (int i = from; i < to; i++) {
+          visit(children.get(i), action);
+        }
+      }
+    }
+  }
+}
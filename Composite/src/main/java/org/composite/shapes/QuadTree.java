@@ -0,0 +1,229 @@
+package org.composite.shapes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loose quadtree over the bounding boxes of a compound's direct children. Each shape lives in the
+ * deepest node whose quadrant contains its centre and whose region, widened by half its size on
+ * every side, contains the whole shape; this keeps shapes that straddle a split line from piling
+ * up near the root. The root grows outwards on demand, so no world bounds are needed up front.
+ */
+final class QuadTree {
+  private static final int MAX_ITEMS = 8;
+  private static final long MIN_SIZE = 16;
+
+  private final Map<Shape, Entry> entries = new IdentityHashMap<>();
+  private Node root;
+  private long nextSequence = 0;
+  // Nodes and entries are kept in tree coordinates; translate() moves the whole tree at once.
+  private long offsetX = 0;
+  private long offsetY = 0;
+
+  static final class Entry {
+    final Shape shape;
+    // Insertion order, used to break ties the way a front-to-back scan of the children would.
+    long sequence;
+    private long x;
+    private long y;
+    private long right;
+    private long bottom;
+    private Node node;
+
+    private Entry(Shape shape) {
+      super();
+      this.shape = shape;
+    }
+
+    private void snapshotBounds(long offsetX, long offsetY) {
+      x = shape.getX() - offsetX;
+      y = shape.getY() - offsetY;
+      right = x + shape.getWidth();
+      bottom = y + shape.getHeight();
+    }
+  }
+
+  private static final class Node {
+    private final long x;
+    private final long y;
+    private final long size;
+    private final List<Entry> items = new ArrayList<>();
+    private Node[] quadrants;
+
+    private Node(long x, long y, long size) {
+      super();
+      this.x = x;
+      this.y = y;
+      this.size = size;
+    }
+
+    private boolean fits(Entry entry) {
+      final long margin = size / 2;
+      final long centerX = (entry.x + entry.right) / 2;
+      final long centerY = (entry.y + entry.bottom) / 2;
+      return centerX >= x && centerX < x + size && centerY >= y && centerY < y + size
+          && entry.x >= x - margin && entry.right <= x + size + margin
+          && entry.y >= y - margin && entry.bottom <= y + size + margin;
+    }
+
+    private boolean looselyIntersects(long left, long top, long right, long bottom) {
+      final long margin = size / 2;
+      return left <= x + size + margin && right >= x - margin
+          && top <= y + size + margin && bottom >= y - margin;
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  void insert(Shape shape) {
+    Entry entry = entries.get(shape);
+    if (entry != null) {
+      update(shape);
+      return;
+    }
+    entry = new Entry(shape);
+    entry.sequence = nextSequence++;
+    entry.snapshotBounds(offsetX, offsetY);
+    entries.put(shape, entry);
+    place(entry);
+  }
+
+  void remove(Shape shape) {
+    final Entry entry = entries.remove(shape);
+    if (entry != null) {
+      entry.node.items.remove(entry);
+    }
+  }
+
+  // Re-reads the shape's bounds; its position in the insertion order is kept.
+  void update(Shape shape) {
+    final Entry entry = entries.get(shape);
+    if (entry == null) {
+      return;
+    }
+    entry.snapshotBounds(offsetX, offsetY);
+    if (!entry.node.fits(entry) || childFor(entry.node, entry) != null) {
+      entry.node.items.remove(entry);
+      place(entry);
+    }
+  }
+
+  // Shifts every indexed shape by (dx, dy), for when the whole group moved.
+  void translate(int dx, int dy) {
+    offsetX += dx;
+    offsetY += dy;
+  }
+
+  // Adds every entry whose bounds contain the point (edges included) to result.
+  void query(int px, int py, List<Entry> result) {
+    query(px, py, px, py, result);
+  }
+
+  // Adds every entry whose bounds intersect the rectangle (edges included) to result.
+  void query(long left, long top, long right, long bottom, List<Entry> result) {
+    if (root == null) {
+      return;
+    }
+    left -= offsetX;
+    right -= offsetX;
+    top -= offsetY;
+    bottom -= offsetY;
+    final Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      final Node node = stack.pop();
+      final List<Entry> items = node.items;
+      for (int i = 0; i < items.size(); i++) {
+        final Entry entry = items.get(i);
+        if (entry.x <= right && entry.right >= left && entry.y <= bottom && entry.bottom >= top) {
+          result.add(entry);
+        }
+      }
+      if (node.quadrants != null) {
+        for (Node quadrant : node.quadrants) {
+          if (quadrant.looselyIntersects(left, top, right, bottom)) {
+            stack.push(quadrant);
+          }
+        }
+      }
+    }
+  }
+
+  private void place(Entry entry) {
+    if (root == null) {
+      long size = MIN_SIZE;
+      while (size < 2 * Math.max(entry.right - entry.x, entry.bottom - entry.y)) {
+        size <<= 1;
+      }
+      root = new Node((entry.x + entry.right) / 2 - size / 2, (entry.y + entry.bottom) / 2 - size / 2, size);
+    }
+    while (!root.fits(entry)) {
+      grow(entry);
+    }
+    Node node = root;
+    Node child;
+    while ((child = childFor(node, entry)) != null) {
+      node = child;
+    }
+    node.items.add(entry);
+    entry.node = node;
+    if (node.quadrants == null && node.items.size() > MAX_ITEMS && node.size >= 2 * MIN_SIZE) {
+      split(node);
+    }
+  }
+
+  private static Node childFor(Node node, Entry entry) {
+    if (node.quadrants == null) {
+      return null;
+    }
+    for (Node quadrant : node.quadrants) {
+      if (quadrant.fits(entry)) {
+        return quadrant;
+      }
+    }
+    return null;
+  }
+
+  private void split(Node node) {
+    final long half = node.size / 2;
+    node.quadrants = new Node[] {
+        new Node(node.x, node.y, half),
+        new Node(node.x + half, node.y, half),
+        new Node(node.x, node.y + half, half),
+        new Node(node.x + half, node.y + half, half)
+    };
+    final List<Entry> items = new ArrayList<>(node.items);
+    node.items.clear();
+    for (Entry entry : items) {
+      final Node quadrant = childFor(node, entry);
+      if (quadrant == null) {
+        node.items.add(entry);
+      } else {
+        quadrant.items.add(entry);
+        entry.node = quadrant;
+      }
+    }
+  }
+
+  // Doubles the root towards the entry, keeping the old root as one of the new quadrants.
+  private void grow(Entry entry) {
+    final Node old = root;
+    final long size = old.size;
+    final boolean towardsLeft = (entry.x + entry.right) / 2 < old.x;
+    final boolean towardsTop = (entry.y + entry.bottom) / 2 < old.y;
+    root = new Node(towardsLeft ? old.x - size : old.x, towardsTop ? old.y - size : old.y, size * 2);
+    root.quadrants = new Node[4];
+    final int oldIndex = (towardsLeft ? 1 : 0) | (towardsTop ? 2 : 0);
+    for (int i = 0; i < 4; i++) {
+      root.quadrants[i] = i == oldIndex
+          ? old
+          : new Node(root.x + ((i & 1) == 0 ? 0 : size), root.y + ((i & 2) == 0 ? 0 : size), size);
+    }
+  }
+}
@@ -4,8 +4,8 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 public class Rectangle extends BaseShape {
-  public int width;
-  public int height;
+  private int width;
+  private int height;
 
   public Rectangle(int x, int y, int width, int height, Color color) {
     super(x, y, color);
@@ -13,6 +13,12 @@ public class Rectangle extends BaseShape {
     this.height = height;
   }
 
+  public void setSize(int width, int height) {
+    this.width = width;
+    this.height = height;
+    invalidateBounds();
+  }
+
   @Override
   public int getWidth() {
     return width;
@@ -0,0 +1,109 @@
+package org.composite.shapes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Addresses shapes by their path of child indexes from a root group, which stays meaningful
+ * across copies of a tree where object references do not. The last step of a path may index a
+ * primitive inside a {@link ShapeStore}.
+ */
+public final class ShapePaths {
+  private ShapePaths() {
+    super();
+  }
+
+  public static int[] pathOf(CompoundShape root, Shape shape) {
+    return pathOf(root, shape, null);
+  }
+
+  // Paths of many shapes at once. Each group is scanned once into an identity index map, so a
+  // selection of k shapes among n siblings costs O(n + k) rather than O(n * k).
+  public static List<int[]> pathsOf(CompoundShape root, List<? extends Shape> shapes) {
+    final Map<CompoundShape, Map<Shape, Integer>> positions = shapes.size() > 1 ? new IdentityHashMap<>() : null;
+    final List<int[]> paths = new ArrayList<>(shapes.size());
+    for (Shape shape : shapes) {
+      paths.add(pathOf(root, shape, positions));
+    }
+    return paths;
+  }
+
+  private static int[] pathOf(CompoundShape root, Shape shape, Map<CompoundShape, Map<Shape, Integer>> positions) {
+    int[] path = new int[8];
+    int length = 0;
+    Shape current = shape;
+    if (shape instanceof ShapeStore.View) {
+      final ShapeStore.View view = (ShapeStore.View) shape;
+      path[length++] = view.index();
+      current = view.store();
+    }
+    while (current != root) {
+      final CompoundShape parent = current instanceof BaseShape ? ((BaseShape) current).parent : null;
+      final int position = parent == null ? -1 : indexOfIdentity(parent, current, positions);
+      if (position < 0) {
+        throw new IllegalArgumentException("Shape is not in this tree: " + shape);
+      }
+      if (length == path.length) {
+        path = Arrays.copyOf(path, length * 2);
+      }
+      path[length++] = position;
+      current = parent;
+    }
+    final int[] result = new int[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = path[length - 1 - i];
+    }
+    return result;
+  }
+
+  public static Shape resolve(CompoundShape root, int[] path) {
+    Shape current = root;
+    for (int step : path) {
+      if (current instanceof CompoundShape) {
+        current = ((CompoundShape) current).childAt(step);
+      } else if (current instanceof ShapeStore) {
+        current = ((ShapeStore) current).get(step);
+      } else {
+        throw new IllegalArgumentException("Path goes below a leaf: " + Arrays.toString(path));
+      }
+    }
+    return current;
+  }
+
+  // The group a path's target lives in, or null for the empty path.
+  public static CompoundShape parentOf(CompoundShape root, int[] path) {
+    if (path.length == 0) {
+      return null;
+    }
+    final Shape parent = resolve(root, Arrays.copyOf(path, path.length - 1));
+    if (!(parent instanceof CompoundShape)) {
+      throw new IllegalArgumentException("Path does not end in a group child: " + Arrays.toString(path));
+    }
+    return (CompoundShape) parent;
+  }
+
+  private static int indexOfIdentity(CompoundShape parent, Shape child,
+                                     Map<CompoundShape, Map<Shape, Integer>> positions) {
+    if (positions != null) {
+      final Integer position = positions.computeIfAbsent(parent, ShapePaths::indexChildren).get(child);
+      return position != null ? position : -1;
+    }
+    for (int i = 0; i < parent.children.size(); i++) {
+      if (parent.children.get(i) == child) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Map<Shape, Integer> indexChildren(CompoundShape parent) {
+    final Map<Shape, Integer> index = new IdentityHashMap<>(parent.children.size());
+    for (int i = 0; i < parent.children.size(); i++) {
+      index.put(parent.children.get(i), i);
+    }
+    return index;
+  }
+}
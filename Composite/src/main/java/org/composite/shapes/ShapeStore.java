@@ -0,0 +1,468 @@
+package org.composite.shapes;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A group of dots, circles and rectangles held in primitive columns instead of one object per
+ * shape: geometry in {@code int[]}s, colours as indexes into a shared palette and selection in a
+ * {@link BitSet}. It behaves like a {@link CompoundShape} of leaves; {@link #get(int)} hands out
+ * throwaway views for code that wants a {@link Shape} per primitive.
+ */
+public class ShapeStore extends BaseShape {
+  public enum Kind {
+    DOT, CIRCLE, RECTANGLE
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+  private static final int DOT_SIZE = 3;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int size = 0;
+  private byte[] kinds = new byte[INITIAL_CAPACITY];
+  private int[] xs = new int[INITIAL_CAPACITY];
+  private int[] ys = new int[INITIAL_CAPACITY];
+  private int[] widths = new int[INITIAL_CAPACITY];
+  private int[] heights = new int[INITIAL_CAPACITY];
+  private short[] colorIndexes = new short[INITIAL_CAPACITY];
+  private final BitSet selection = new BitSet();
+  private final List<Color> palette = new ArrayList<>();
+  private final Map<Color, Integer> paletteIndexes = new HashMap<>();
+  private boolean boundsValid = false;
+  private int minX;
+  private int minY;
+  private int width;
+  private int height;
+
+  public ShapeStore() {
+    super(0, 0, Color.BLACK);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int addDot(int x, int y, Color color) {
+    return append(Kind.DOT, x, y, DOT_SIZE, DOT_SIZE, color);
+  }
+
+  public int addCircle(int x, int y, int radius, Color color) {
+    return append(Kind.CIRCLE, x, y, radius * 2, radius * 2, color);
+  }
+
+  public int addRectangle(int x, int y, int width, int height, Color color) {
+    return append(Kind.RECTANGLE, x, y, width, height, color);
+  }
+
+  // Copies a Dot, Circle or Rectangle into the store; the original is not referenced afterwards.
+  public int add(Shape shape) {
+    if (shape instanceof Dot) {
+      return addDot(shape.getX(), shape.getY(), ((Dot) shape).getColor());
+    } else if (shape instanceof Circle) {
+      return addCircle(shape.getX(), shape.getY(), ((Circle) shape).getRadius(), ((Circle) shape).getColor());
+    } else if (shape instanceof Rectangle) {
+      return addRectangle(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(),
+          ((Rectangle) shape).getColor());
+    }
+    throw new IllegalArgumentException("Only dots, circles and rectangles can be stored: " + shape);
+  }
+
+  // Removes a primitive by moving the last one into its slot, so that one changes index.
+  public void remove(int index) {
+    checkIndex(index);
+    final int last = size - 1;
+    kinds[index] = kinds[last];
+    xs[index] = xs[last];
+    ys[index] = ys[last];
+    widths[index] = widths[last];
+    heights[index] = heights[last];
+    colorIndexes[index] = colorIndexes[last];
+    selection.set(index, selection.get(last));
+    selection.clear(last);
+    size = last;
+    elementsChanged();
+  }
+
+  public void clear() {
+    size = 0;
+    selection.clear();
+    elementsChanged();
+  }
+
+  // A lightweight view of one primitive; it reads and writes the columns directly.
+  public Shape get(int index) {
+    checkIndex(index);
+    return new View(index);
+  }
+
+  public Kind getKind(int index) {
+    checkIndex(index);
+    return KINDS[kinds[index]];
+  }
+
+  public Color getColor(int index) {
+    checkIndex(index);
+    return palette.get(colorIndexes[index] & 0xFFFF);
+  }
+
+  public void setColor(int index, Color color) {
+    checkIndex(index);
+    colorIndexes[index] = paletteIndex(color);
+    invalidateContent();
+  }
+
+  public void move(int index, int dx, int dy) {
+    checkIndex(index);
+    xs[index] += dx;
+    ys[index] += dy;
+    elementsChanged();
+  }
+
+  public void select(int index) {
+    checkIndex(index);
+    if (!selection.get(index)) {
+      selection.set(index);
+      invalidateContent();
+    }
+  }
+
+  public void unSelect(int index) {
+    checkIndex(index);
+    if (selection.get(index)) {
+      selection.clear(index);
+      invalidateContent();
+    }
+  }
+
+  public boolean isSelected(int index) {
+    checkIndex(index);
+    return selection.get(index);
+  }
+
+  public boolean isInsideBounds(int index, int x, int y) {
+    checkIndex(index);
+    return x > xs[index] && x < xs[index] + widths[index] && y > ys[index] && y < ys[index] + heights[index];
+  }
+
+  // Index of the first primitive containing the point, or -1.
+  public int indexAt(int x, int y) {
+    return indexAt(0, size, x, y);
+  }
+
+  // Mirrors CompoundShape.pickChildAt: a view of the primitive under the point, or null.
+  public Shape pickChildAt(int x, int y) {
+    final int index = indexAt(x, y);
+    return index < 0 ? null : new View(index);
+  }
+
+  public boolean selectChildAt(int x, int y) {
+    final int index = indexAt(x, y);
+    if (index < 0) {
+      return false;
+    }
+    select(index);
+    return true;
+  }
+
+  @Override
+  public int getX() {
+    validateBounds();
+    return minX;
+  }
+
+  @Override
+  public int getY() {
+    validateBounds();
+    return minY;
+  }
+
+  @Override
+  public int getWidth() {
+    validateBounds();
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    validateBounds();
+    return height;
+  }
+
+  // Moving everything shifts the cached bounds instead of recomputing them.
+  @Override
+  public void move(int x, int y) {
+    translate(x, y);
+    notifyMoved();
+  }
+
+  @Override
+  void translate(int dx, int dy) {
+    translateOwnState(dx, dy);
+    translateRange(0, size, dx, dy);
+  }
+
+  void translateOwnState(int dx, int dy) {
+    if (boundsValid) {
+      minX += dx;
+      minY += dy;
+    }
+  }
+
+  void translateRange(int from, int to, int dx, int dy) {
+    for (int i = from; i < to; i++) {
+      xs[i] += dx;
+      ys[i] += dy;
+    }
+  }
+
+  boolean hasValidBounds() {
+    return boundsValid;
+  }
+
+  // Bounds of the primitives in [from, to) as {left, top, right, bottom}, or null if empty.
+  int[] boundsOfRange(int from, int to) {
+    if (from >= to) {
+      return null;
+    }
+    int left = Integer.MAX_VALUE;
+    int top = Integer.MAX_VALUE;
+    int right = Integer.MIN_VALUE;
+    int bottom = Integer.MIN_VALUE;
+    for (int i = from; i < to; i++) {
+      left = Math.min(left, xs[i]);
+      top = Math.min(top, ys[i]);
+      right = Math.max(right, xs[i] + widths[i]);
+      bottom = Math.max(bottom, ys[i] + heights[i]);
+    }
+    return new int[] {left, top, right, bottom};
+  }
+
+  // Index of the first primitive in [from, to) containing the point, or -1.
+  int indexAt(int from, int to, int x, int y) {
+    for (int i = from; i < to; i++) {
+      if (x > xs[i] && x < xs[i] + widths[i] && y > ys[i] && y < ys[i] + heights[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  void cacheBounds(int left, int top, int right, int bottom) {
+    minX = left;
+    minY = top;
+    width = right - left;
+    height = bottom - top;
+    boundsValid = true;
+  }
+
+  @Override
+  public boolean isInsideBounds(int x, int y) {
+    return indexAt(x, y) >= 0;
+  }
+
+  @Override
+  void unSelectSelf() {
+    super.unSelectSelf();
+    if (!selection.isEmpty()) {
+      selection.clear();
+      invalidateContent();
+    }
+  }
+
+  @Override
+  public void paint(Graphics graphics) {
+    if (isSelected()) {
+      enableSelectionStyle(graphics);
+      graphics.drawRect(getX() - 1, getY() - 1, getWidth() + 1, getHeight() + 1);
+      disableSelectionStyle(graphics);
+    }
+
+    final java.awt.Rectangle clip = graphics.getClipBounds();
+    final int margin = CompoundShape.PAINT_MARGIN;
+    // Style changes are only issued when the next primitive needs a different one.
+    int currentStyle = -2;
+    for (int i = 0; i < size; i++) {
+      if (clip != null && (xs[i] - margin > clip.x + clip.width || xs[i] + widths[i] + margin < clip.x
+          || ys[i] - margin > clip.y + clip.height || ys[i] + heights[i] + margin < clip.y)) {
+        continue;
+      }
+      final int style = selection.get(i) ? -1 : colorIndexes[i] & 0xFFFF;
+      if (style != currentStyle) {
+        applyStyle(graphics, style, currentStyle);
+        currentStyle = style;
+      }
+      paintPrimitive(graphics, i);
+    }
+  }
+
+  private void applyStyle(Graphics graphics, int style, int previousStyle) {
+    if (style < 0) {
+      enableSelectionStyle(graphics);
+    } else if (previousStyle < 0) {
+      disableSelectionStyle(graphics);
+      graphics.setColor(palette.get(style));
+    } else {
+      graphics.setColor(palette.get(style));
+    }
+  }
+
+  private void paintPrimitive(Graphics graphics, int i) {
+    switch (KINDS[kinds[i]]) {
+      case DOT:
+        graphics.fillRect(xs[i] - 1, ys[i] - 1, widths[i], heights[i]);
+        break;
+      case CIRCLE:
+        graphics.drawOval(xs[i], ys[i], widths[i] - 1, heights[i] - 1);
+        break;
+      default:
+        graphics.drawRect(xs[i], ys[i], widths[i] - 1, heights[i] - 1);
+        break;
+    }
+  }
+
+  private int append(Kind kind, int x, int y, int width, int height, Color color) {
+    if (size == xs.length) {
+      final int capacity = size + (size >> 1);
+      kinds = Arrays.copyOf(kinds, capacity);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      widths = Arrays.copyOf(widths, capacity);
+      heights = Arrays.copyOf(heights, capacity);
+      colorIndexes = Arrays.copyOf(colorIndexes, capacity);
+    }
+    kinds[size] = (byte) kind.ordinal();
+    xs[size] = x;
+    ys[size] = y;
+    widths[size] = width;
+    heights[size] = height;
+    colorIndexes[size] = paletteIndex(color);
+    size++;
+    elementsChanged();
+    return size - 1;
+  }
+
+  private short paletteIndex(Color color) {
+    Integer index = paletteIndexes.get(color);
+    if (index == null) {
+      if (palette.size() > 0xFFFF) {
+        throw new IllegalStateException("A store holds at most 65536 distinct colours");
+      }
+      index = palette.size();
+      palette.add(color);
+      paletteIndexes.put(color, index);
+    }
+    return (short) (int) index;
+  }
+
+  private void elementsChanged() {
+    boundsValid = false;
+    invalidateBounds();
+  }
+
+  private void validateBounds() {
+    if (boundsValid) {
+      return;
+    }
+    final int[] bounds = boundsOfRange(0, size);
+    if (bounds == null) {
+      cacheBounds(0, 0, 0, 0);
+    } else {
+      cacheBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+  }
+
+  final class View implements Shape {
+    private final int index;
+
+    private View(int index) {
+      super();
+      this.index = index;
+    }
+
+    @Override
+    public int getX() {
+      checkIndex(index);
+      return xs[index];
+    }
+
+    @Override
+    public int getY() {
+      checkIndex(index);
+      return ys[index];
+    }
+
+    @Override
+    public int getWidth() {
+      checkIndex(index);
+      return widths[index];
+    }
+
+    @Override
+    public int getHeight() {
+      checkIndex(index);
+      return heights[index];
+    }
+
+    @Override
+    public void move(int x, int y) {
+      ShapeStore.this.move(index, x, y);
+    }
+
+    @Override
+    public boolean isInsideBounds(int x, int y) {
+      return ShapeStore.this.isInsideBounds(index, x, y);
+    }
+
+    @Override
+    public void select() {
+      ShapeStore.this.select(index);
+    }
+
+    @Override
+    public void unSelect() {
+      ShapeStore.this.unSelect(index);
+    }
+
+    @Override
+    public boolean isSelected() {
+      return ShapeStore.this.isSelected(index);
+    }
+
+    @Override
+    public void paint(Graphics graphics) {
+      checkIndex(index);
+      applyStyle(graphics, selection.get(index) ? -1 : colorIndexes[index] & 0xFFFF, -1);
+      paintPrimitive(graphics, index);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof View && ((View) other).store() == ShapeStore.this && ((View) other).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(ShapeStore.this) * 31 + index;
+    }
+
+    ShapeStore store() {
+      return ShapeStore.this;
+    }
+
+    int index() {
+      return index;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package org.composite.shapes;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Depth-first walks over a shape tree driven by an explicit stack of (group, next child index)
+ * pairs, so deep trees cannot overflow the call stack and no iterators are created per node. The
+ * stack is kept between walks: hold on to one traversal per thread for allocation-free visits.
+ * A {@link ShapeStore} is visited as a single shape, not per primitive.
+ */
+public final class ShapeTraversal {
+  private Shape[] shapes = new Shape[16];
+  private int[] cursors = new int[16];
+  private int depth = 0;
+  private boolean walking = false;
+
+  public void walk(Shape root, ShapeVisitor visitor) {
+    if (walking) {
+      throw new IllegalStateException("A traversal cannot be reused from inside its own walk");
+    }
+    walking = true;
+    try {
+      if (!visitor.enter(root)) {
+        visitor.exit(root);
+        return;
+      }
+      push(root);
+      while (depth > 0) {
+        final Shape top = shapes[depth - 1];
+        final int cursor = cursors[depth - 1];
+        if (top instanceof CompoundShape && cursor < ((CompoundShape) top).childCount()) {
+          cursors[depth - 1] = cursor + 1;
+          final Shape child = ((CompoundShape) top).childAt(cursor);
+          if (visitor.enter(child)) {
+            push(child);
+          } else {
+            visitor.exit(child);
+          }
+        } else {
+          shapes[--depth] = null;
+          visitor.exit(top);
+        }
+      }
+    } finally {
+      Arrays.fill(shapes, 0, depth, null);
+      depth = 0;
+      walking = false;
+    }
+  }
+
+  boolean isWalking() {
+    return walking;
+  }
+
+  // Parents before their children, children in paint order.
+  public void preOrder(Shape root, Consumer<? super Shape> action) {
+    walk(root, shape -> {
+      action.accept(shape);
+      return true;
+    });
+  }
+
+  // Children before their parents.
+  public void postOrder(Shape root, Consumer<? super Shape> action) {
+    walk(root, new ShapeVisitor() {
+      @Override
+      public boolean enter(Shape shape) {
+        return true;
+      }
+
+      @Override
+      public void exit(Shape shape) {
+        action.accept(shape);
+      }
+    });
+  }
+
+  // Pre-order over the shapes whose bounds intersect the rectangle; groups that miss it are
+  // skipped whole, using their cached bounds.
+  public void within(Shape root, int x, int y, int width, int height, Consumer<? super Shape> action) {
+    walk(root, shape -> {
+      if ((long) shape.getX() > (long) x + width || (long) shape.getX() + shape.getWidth() < x
+          || (long) shape.getY() > (long) y + height || (long) shape.getY() + shape.getHeight() < y) {
+        return false;
+      }
+      action.accept(shape);
+      return true;
+    });
+  }
+
+  private void push(Shape shape) {
+    if (depth == shapes.length) {
+      shapes = Arrays.copyOf(shapes, depth * 2);
+      cursors = Arrays.copyOf(cursors, depth * 2);
+    }
+    shapes[depth] = shape;
+    cursors[depth] = 0;
+    depth++;
+  }
+}
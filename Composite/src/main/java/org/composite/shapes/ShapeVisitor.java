@@ -0,0 +1,13 @@
+package org.composite.shapes;
+
+/**
+ * Callbacks for {@link ShapeTraversal#walk(Shape, ShapeVisitor)}: {@code enter} in pre-order,
+ * {@code exit} in post-order.
+ */
+public interface ShapeVisitor {
+  // Called before the shape's children; returning false skips them. exit is called either way.
+  boolean enter(Shape shape);
+
+  default void exit(Shape shape) {
+  }
+}
@@ -0,0 +1,52 @@
+package org.composite.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Shape;
+
+import java.awt.Color;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CommandLogTest {
+  @Test
+  void replaysEveryPositionWithCappedSnapshots() {
+    final CompoundShape document = new CompoundShape(new Dot(0, 0, Color.RED), new Dot(10, 10, Color.RED));
+    final CommandLog log = new CommandLog(document, 3, 2);
+    for (int i = 0; i < 20; i++) {
+      log.execute(new MoveCommand(List.of(new int[] {i % 2}), 1, 2));
+    }
+    for (int i = 20; i >= 0; i--) {
+      assertEquals(describe(document), describe(log.replay()), "position " + i);
+      if (i > 0) {
+        log.undo();
+      }
+    }
+    assertEquals(0, log.position());
+  }
+
+  @Test
+  void historyWithoutSnapshotsStillUndoesAndRedoes() {
+    final CompoundShape document = new CompoundShape(new Dot(0, 0, Color.RED));
+    final CommandLog log = new CommandLog(document);
+    log.execute(new MoveCommand(List.of(new int[] {0}), 5, 5));
+    log.undo();
+    assertEquals(0, document.childAt(0).getX());
+    log.redo();
+    assertEquals(5, document.childAt(0).getX());
+    assertThrows(IllegalStateException.class, log::replay);
+  }
+
+  private static String describe(CompoundShape group) {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < group.childCount(); i++) {
+      final Shape child = group.childAt(i);
+      text.append(child.getX()).append(',').append(child.getY()).append(' ');
+    }
+    return text.toString();
+  }
+}
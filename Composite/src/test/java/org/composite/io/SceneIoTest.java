@@ -0,0 +1,149 @@
+package org.composite.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.composite.shapes.Circle;
+import org.composite.shapes.CompoundShape;
+import org.composite.shapes.Dot;
+import org.composite.shapes.Rectangle;
+import org.composite.shapes.Shape;
+import org.composite.shapes.ShapeStore;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SceneIoTest {
+  @TempDir
+  Path directory;
+
+  @Test
+  void streamingReadRebuildsTheTree() throws IOException {
+    final CompoundShape scene = scene();
+    final List<Shape> topLevel = new ArrayList<>();
+    final CompoundShape read = SceneReader.read(new ByteArrayInputStream(bytesOf(scene)), topLevel::add);
+    assertEquals(describe(scene), describe(read));
+    assertEquals(scene.childCount(), topLevel.size());
+  }
+
+  @Test
+  void mappedReadLoadsGroupsOnlyWhenUsed() throws IOException {
+    final CompoundShape scene = scene();
+    final Path file = directory.resolve("scene.cscn");
+    SceneWriter.write(scene, file);
+    final CompoundShape mapped = SceneReader.map(file);
+    assertFalse(mapped.isLoaded());
+    assertEquals(scene.getWidth(), mapped.getWidth());
+    assertFalse(mapped.isLoaded());
+    assertEquals(describe(scene), describe(mapped));
+    assertTrue(mapped.isLoaded());
+  }
+
+  @Test
+  void rewritingAMappedSceneGivesTheSameBytes() throws IOException {
+    final byte[] bytes = bytesOf(scene());
+    final Path file = directory.resolve("scene.cscn");
+    Files.write(file, bytes);
+    assertArrayEquals(bytes, bytesOf(SceneReader.map(file)));
+  }
+
+  @Test
+  void rejectsOtherFiles() {
+    assertThrows(IOException.class, () -> SceneReader.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5})));
+  }
+
+  @Test
+  void rejectsGroupLengthsPastTheEndOfAMappedFile() throws IOException {
+    final byte[] bytes = bytesOf(new CompoundShape(new CompoundShape(new Dot(1, 2, Color.RED))));
+    // Magic, version, a one-colour palette and the root tag come before the root body length;
+    // the nested group's tag follows that length and the root's x, y, width, height and count.
+    final int rootLength = 4 + 1 + 1 + 4 + 1;
+    int childTag = rootLength;
+    for (int i = 0; i < 6; i++) {
+      childTag = skipVarInt(bytes, childTag);
+    }
+
+    final Path corruptRoot = directory.resolve("root.cscn");
+    Files.write(corruptRoot, withVarInt(bytes, rootLength, Integer.MAX_VALUE));
+    assertThrows(IOException.class, () -> SceneReader.map(corruptRoot));
+
+    final Path corruptChild = directory.resolve("child.cscn");
+    Files.write(corruptChild, withVarInt(bytes, childTag + 1, 127));
+    final CompoundShape mapped = SceneReader.map(corruptChild);
+    assertThrows(UncheckedIOException.class, () -> mapped.childAt(0));
+  }
+
+  private static int skipVarInt(byte[] bytes, int position) {
+    while ((bytes[position] & 0x80) != 0) {
+      position++;
+    }
+    return position + 1;
+  }
+
+  private static byte[] withVarInt(byte[] bytes, int position, int value) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(bytes, 0, position);
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+    final int end = skipVarInt(bytes, position);
+    out.write(bytes, end, bytes.length - end);
+    return out.toByteArray();
+  }
+
+  private static byte[] bytesOf(CompoundShape scene) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SceneWriter.write(scene, out);
+    return out.toByteArray();
+  }
+
+  private static CompoundShape scene() {
+    final ShapeStore store = new ShapeStore();
+    store.addDot(-40, 5, Color.GREEN);
+    store.addCircle(300, 200, 12, new Color(1, 2, 3, 4));
+    store.select(store.addRectangle(90, 90, 8, 9, Color.RED));
+    final Circle selected = new Circle(50, 60, 7, Color.BLUE);
+    selected.select();
+    final CompoundShape nested = new CompoundShape(new Rectangle(1000, 2000, 30, 40, Color.RED), store);
+    return new CompoundShape(new Dot(3, 4, Color.RED), new CompoundShape(selected, nested), new CompoundShape());
+  }
+
+  private static String describe(Shape shape) {
+    final StringBuilder text = new StringBuilder();
+    describe(shape, text);
+    return text.toString();
+  }
+
+  private static void describe(Shape shape, StringBuilder text) {
+    text.append(shape.getClass().getSimpleName()).append(' ').append(shape.getX()).append(',').append(shape.getY())
+        .append(' ').append(shape.getWidth()).append('x').append(shape.getHeight())
+        .append(shape.isSelected() ? " selected" : "").append('\n');
+    if (shape instanceof CompoundShape) {
+      final CompoundShape group = (CompoundShape) shape;
+      for (int i = 0; i < group.childCount(); i++) {
+        describe(group.childAt(i), text);
+      }
+    } else if (shape instanceof ShapeStore) {
+      final ShapeStore store = (ShapeStore) shape;
+      for (int i = 0; i < store.size(); i++) {
+        describe(store.get(i), text);
+        text.append(store.getColor(i).getRGB()).append(store.isSelected(i) ? " selected" : "").append('\n');
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.composite.shapes;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.awt.Color;
+import java.awt.Graphics;
+
+import org.junit.jupiter.api.Test;
+
+class CompoundShapeTest {
+  @Test
+  void unSelectClearsTheWholeSubtree() {
+    final Dot dot = new Dot(1, 1, Color.RED);
+    final ShapeStore store = new ShapeStore();
+    final int index = store.addCircle(5, 5, 2, Color.BLUE);
+    store.select(index);
+    final CompoundShape inner = new CompoundShape(dot, store);
+    final CompoundShape root = new CompoundShape(inner);
+    dot.select();
+    inner.select();
+    root.select();
+
+    root.unSelect();
+    assertFalse(root.isSelected());
+    assertFalse(inner.isSelected());
+    assertFalse(dot.isSelected());
+    assertFalse(store.isSelected(index));
+  }
+
+  @Test
+  void unSelectCanBeCalledAgainFromInsideItsOwnWalk() {
+    final Dot dot = new Dot(1, 1, Color.RED);
+    final CompoundShape other = new CompoundShape(dot);
+    dot.select();
+    final CompoundShape root = new CompoundShape(new Linked(other));
+
+    root.unSelect();
+    assertFalse(dot.isSelected());
+
+    // The shared traversal is still usable afterwards.
+    dot.select();
+    other.unSelect();
+    assertFalse(dot.isSelected());
+  }
+
+  // A shape outside the BaseShape hierarchy whose unSelect reaches into another group.
+  private static final class Linked implements Shape {
+    private final CompoundShape target;
+
+    Linked(CompoundShape target) {
+      super();
+      this.target = target;
+    }
+
+    @Override
+    public int getX() {
+      return 0;
+    }
+
+    @Override
+    public int getY() {
+      return 0;
+    }
+
+    @Override
+    public int getWidth() {
+      return 0;
+    }
+
+    @Override
+    public int getHeight() {
+      return 0;
+    }
+
+    @Override
+    public void move(int x, int y) {
+    }
+
+    @Override
+    public boolean isInsideBounds(int x, int y) {
+      return false;
+    }
+
+    @Override
+    public void select() {
+    }
+
+    @Override
+    public void unSelect() {
+      target.unSelect();
+    }
+
+    @Override
+    public boolean isSelected() {
+      return false;
+    }
+
+    @Override
+    public void paint(Graphics graphics) {
+    }
+  }
+}
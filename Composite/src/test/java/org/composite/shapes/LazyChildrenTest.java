@@ -0,0 +1,53 @@
+package org.composite.shapes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class LazyChildrenTest {
+  @Test
+  void appliesMovesMadeBeforeLoading() {
+    final CompoundShape group = lazyGroup();
+    group.move(5, 7);
+    assertFalse(group.isLoaded());
+    assertEquals(15, group.childAt(0).getX());
+    assertEquals(27, group.childAt(0).getY());
+    assertTrue(group.isLoaded());
+    group.move(1, 1);
+    assertEquals(16, group.childAt(0).getX());
+  }
+
+  @Test
+  void movesRacingALoadAreAppliedExactlyOnce() throws InterruptedException {
+    for (int round = 0; round < 500; round++) {
+      final CompoundShape group = lazyGroup();
+      final CountDownLatch start = new CountDownLatch(1);
+      final Thread loader = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        group.childAt(0);
+      });
+      loader.start();
+      start.countDown();
+      for (int i = 0; i < 20; i++) {
+        group.move(1, 0);
+      }
+      loader.join();
+      assertEquals(30, group.childAt(0).getX(), "round " + round);
+      assertEquals(30, group.getX(), "round " + round);
+    }
+  }
+
+  private static CompoundShape lazyGroup() {
+    return CompoundShape.lazy(10, 20, 30, 30, 1, () -> List.of(new Rectangle(10, 20, 30, 30, Color.RED)));
+  }
+}
@@ -0,0 +1,83 @@
+package org.composite.shapes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelShapeOpsTest {
+  // A small threshold so that even these trees are split into several ranges.
+  private final ParallelShapeOps ops = new ParallelShapeOps(ForkJoinPool.commonPool(), 2);
+
+  @Test
+  void emptyGroupCountsAsOriginBoxLikeSequentialBounds() {
+    assertSameBounds(() -> new CompoundShape(new Dot(100, 100, Color.RED), new CompoundShape()));
+  }
+
+  @Test
+  void emptyStoreCountsAsOriginBoxLikeSequentialBounds() {
+    assertSameBounds(() -> new CompoundShape(new Rectangle(50, 60, 10, 10, Color.RED), new ShapeStore()));
+  }
+
+  @Test
+  void emptyRootHasEmptyBounds() {
+    assertSameBounds(CompoundShape::new);
+  }
+
+  @Test
+  void randomTreesMatchSequentialBounds() {
+    for (long seed = 0; seed < 20; seed++) {
+      final long treeSeed = seed;
+      assertSameBounds(() -> randomGroup(new Random(treeSeed), 3));
+    }
+  }
+
+  @Test
+  void boundsAfterParallelMoveMatchSequentialMove() {
+    final CompoundShape parallel = randomGroup(new Random(7), 3);
+    final CompoundShape sequential = randomGroup(new Random(7), 3);
+    ops.move(parallel, 13, -7);
+    sequential.move(13, -7);
+    assertEquals(rectangleOf(sequential), ops.bounds(parallel));
+  }
+
+  // Builds the same tree twice and validates one copy's bounds sequentially, the other's in parallel.
+  private void assertSameBounds(Supplier<CompoundShape> tree) {
+    final CompoundShape sequential = tree.get();
+    final CompoundShape parallel = tree.get();
+    final java.awt.Rectangle expected = rectangleOf(sequential);
+    assertEquals(expected, ops.bounds(parallel));
+    // The bounds cached by the parallel pass must be the ones the sequential getters return.
+    assertEquals(expected, rectangleOf(parallel));
+  }
+
+  private static java.awt.Rectangle rectangleOf(Shape shape) {
+    return new java.awt.Rectangle(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight());
+  }
+
+  private static CompoundShape randomGroup(Random random, int depth) {
+    final CompoundShape group = new CompoundShape();
+    final int count = random.nextInt(6);
+    for (int i = 0; i < count; i++) {
+      final int kind = random.nextInt(5);
+      if (kind == 0 && depth > 0) {
+        group.add(randomGroup(random, depth - 1));
+      } else if (kind == 1) {
+        final ShapeStore store = new ShapeStore();
+        final int primitives = random.nextInt(4);
+        for (int j = 0; j < primitives; j++) {
+          store.addCircle(random.nextInt(500), random.nextInt(500), 1 + random.nextInt(20), Color.BLUE);
+        }
+        group.add(store);
+      } else {
+        group.add(new Rectangle(random.nextInt(500), random.nextInt(500), 1 + random.nextInt(50),
+            1 + random.nextInt(50), Color.RED));
+      }
+    }
+    return group;
+  }
+}
@@ -0,0 +1,50 @@
+package org.composite.shapes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ShapePathsTest {
+  @Test
+  void pathsOfMatchesPathOfForEveryShape() {
+    final CompoundShape root = new CompoundShape();
+    final List<Shape> shapes = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      final Dot dot = new Dot(i, i, Color.RED);
+      root.add(dot);
+      shapes.add(dot);
+    }
+    final CompoundShape group = new CompoundShape(new Circle(5, 5, 3, Color.BLUE), new Dot(1, 1, Color.RED));
+    root.add(group);
+    shapes.add(group.childAt(1));
+    final ShapeStore store = new ShapeStore();
+    store.addDot(3, 4, Color.GREEN);
+    store.addRectangle(10, 10, 5, 5, Color.GREEN);
+    group.add(store);
+    shapes.add(store.get(1));
+    shapes.add(group);
+
+    final List<int[]> paths = ShapePaths.pathsOf(root, shapes);
+    assertEquals(shapes.size(), paths.size());
+    for (int i = 0; i < shapes.size(); i++) {
+      assertArrayEquals(ShapePaths.pathOf(root, shapes.get(i)), paths.get(i));
+      assertEquals(shapes.get(i), ShapePaths.resolve(root, paths.get(i)));
+    }
+    assertSame(group, ShapePaths.resolve(root, new int[] {50}));
+    assertArrayEquals(new int[] {50, 2, 1}, paths.get(51));
+  }
+
+  @Test
+  void pathsOfRejectsShapesOutsideTheTree() {
+    final CompoundShape root = new CompoundShape(new Dot(1, 1, Color.RED), new Dot(2, 2, Color.RED));
+    final List<Shape> shapes = List.of(root.childAt(0), new Dot(3, 3, Color.RED));
+    assertThrows(IllegalArgumentException.class, () -> ShapePaths.pathsOf(root, shapes));
+  }
+}
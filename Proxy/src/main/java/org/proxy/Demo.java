@@ -1,16 +1,37 @@
 package org.proxy;
 
+import org.proxy.cache.DiskVideoStore;
+import org.proxy.caching.CachingProxyFactory;
+import org.proxy.downloader.VirtualThreads;
 import org.proxy.downloader.YouTubeDownloader;
 import org.proxy.lib.ThirdPartyYouTubeClass;
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.metrics.SimpleCacheMetrics;
+import org.proxy.proxy.CachedYouTubeLib;
 import org.proxy.proxy.YouTubeCacheProxy;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
 public final class Demo {
+  // Held so the configured logger is not garbage collected along with its settings.
+  private static final Logger PROXY_LOGGER = Logger.getLogger("org.proxy");
 
   private Demo() {
     super();
   }
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    showProxyLogging();
+
     System.out.println("### Testing Naive Downloader (No Proxy) ###");
     final YouTubeDownloader naiveDownloader = new YouTubeDownloader(new ThirdPartyYouTubeClass());
     final long naiveTime = test(naiveDownloader);
@@ -18,17 +39,74 @@ public final class Demo {
     System.out.println("=========================================\n");
 
     System.out.println("### Testing Smart Downloader (With Proxy) ###");
-    final YouTubeCacheProxy cacheProxy = new YouTubeCacheProxy();
+    final SimpleCacheMetrics metrics = new SimpleCacheMetrics();
+    metrics.register("demo");
+    final YouTubeCacheProxy cacheProxy = YouTubeCacheProxy.builder().metrics(metrics).build();
     final YouTubeDownloader smartDownloader = new YouTubeDownloader(cacheProxy);
     final long smartTime = test(smartDownloader);
     System.out.println("Smart Downloader finished in: " + smartTime + "ms");
+    System.out.println("Proxy cache stats: " + metrics);
     System.out.println("=========================================\n");
 
     System.out.println("Time saved by caching proxy: " + (naiveTime - smartTime) + "ms");
+    System.out.println("=========================================\n");
+
+    System.out.println("### Testing Concurrent Downloader (Proxy + "
+        + (VirtualThreads.isSupported() ? "virtual threads" : "platform threads") + ") ###");
+    final ExecutorService executor = VirtualThreads.newExecutor();
+    try {
+      final YouTubeDownloader concurrentDownloader = new YouTubeDownloader(new YouTubeCacheProxy(), executor);
+      final long startTime = System.nanoTime();
+      concurrentDownloader.renderPage("catzzzzzzzzz", "dancesvideoo", "someothervid");
+      System.out.println("Concurrent page render finished in: "
+          + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+    } finally {
+      executor.shutdown();
+    }
+    System.out.println("=========================================\n");
+
+    System.out.println("### Testing Persistent Proxy (survives a restart) ###");
+    final Path storeFile = Files.createTempDirectory("youtube-cache").resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(storeFile)) {
+      new YouTubeDownloader(YouTubeCacheProxy.builder().secondLevel(store).build()).renderVideoPage("catzzzzzzzzz");
+    }
+    System.out.println("--> Restarting proxy...");
+    try (DiskVideoStore store = new DiskVideoStore(storeFile)) {
+      new YouTubeDownloader(YouTubeCacheProxy.builder().secondLevel(store).build()).renderVideoPage("catzzzzzzzzz");
+    }
+    System.out.println("=========================================\n");
+
+    System.out.println("### Testing Generic Caching Proxy (built from @Cacheable annotations) ###");
+    final ThirdPartyYouTubeLib genericProxy =
+        new CachingProxyFactory().create(ThirdPartyYouTubeLib.class, CachedYouTubeLib.class, new ThirdPartyYouTubeClass());
+    final YouTubeDownloader genericDownloader = new YouTubeDownloader(genericProxy);
+    genericDownloader.renderVideoPage("dancesvideoo");
+    System.out.println("--> Requesting video page 'dancesvideoo' again...");
+    genericDownloader.renderVideoPage("dancesvideoo");
+  }
+
+  // Prints the proxy's per-request log messages to stdout so they interleave with the demo output.
+  private static void showProxyLogging() {
+    final StreamHandler handler = new StreamHandler(System.out, new Formatter() {
+      @Override
+      public String format(LogRecord logRecord) {
+        return formatMessage(logRecord) + System.lineSeparator();
+      }
+    }) {
+      @Override
+      public synchronized void publish(LogRecord logRecord) {
+        super.publish(logRecord);
+        flush();
+      }
+    };
+    handler.setLevel(Level.FINE);
+    PROXY_LOGGER.setLevel(Level.FINE);
+    PROXY_LOGGER.setUseParentHandlers(false);
+    PROXY_LOGGER.addHandler(handler);
   }
 
   private static long test(YouTubeDownloader downloader) {
-    final long startTime = System.currentTimeMillis();
+    final long startTime = System.nanoTime();
 
     System.out.println("--> Requesting popular videos...");
     downloader.renderPopularVideos();
@@ -48,7 +126,7 @@ public final class Demo {
     System.out.println("--> Requesting video page 'someothervid'...");
     downloader.renderVideoPage("someothervid");
 
-    final long estimatedTime = System.currentTimeMillis() - startTime;
+    final long estimatedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
     System.out.print("\nTest completed. ");
     return estimatedTime;
   }
@@ -0,0 +1,64 @@
+package org.proxy.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe bloom filter over strings using double hashing. False positives are possible,
+ * false negatives are not.
+ */
+public class BloomFilter {
+  private final AtomicLongArray words;
+  private final int bitCount;
+  private final int hashCount;
+
+  // Sized for the expected number of keys at roughly a 1% false-positive rate.
+  public BloomFilter(int expectedKeys) {
+    super();
+    final int bits = Math.max(64, (int) Math.ceil(expectedKeys * 9.6));
+    this.words = new AtomicLongArray((bits + 63) / 64);
+    this.bitCount = words.length() * 64;
+    this.hashCount = 7;
+  }
+
+  public void add(String key) {
+    final int h1 = key.hashCode();
+    final int h2 = mix(h1);
+    for (int i = 0; i < hashCount; i++) {
+      final int bit = Math.floorMod(h1 + i * h2, bitCount);
+      final long mask = 1L << bit;
+      final int word = bit >>> 6;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+  }
+
+  public boolean mightContain(String key) {
+    final int h1 = key.hashCode();
+    final int h2 = mix(h1);
+    for (int i = 0; i < hashCount; i++) {
+      final int bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void clear() {
+    for (int i = 0; i < words.length(); i++) {
+      words.set(i, 0);
+    }
+  }
+
+  // Murmur3 finalizer, forced odd so successive probes cover the whole bit array.
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h | 1;
+  }
+}
@@ -0,0 +1,91 @@
+package org.proxy.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size chunks of video payloads, evicted least-recently-used once their total size
+ * exceeds the byte budget. Videos can be partially cached: only the chunks that were actually
+ * requested are kept.
+ */
+public class ChunkCache {
+  private final int chunkSize;
+  private final long maxBytes;
+  private final LinkedHashMap<ChunkKey, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes = 0;
+
+  public ChunkCache(int chunkSize, long maxBytes) {
+    super();
+    this.chunkSize = chunkSize;
+    this.maxBytes = maxBytes;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  // A read-only view of the chunk, or null when it is not cached.
+  public synchronized ByteBuffer get(String videoId, long chunkIndex) {
+    final byte[] chunk = chunks.get(new ChunkKey(videoId, chunkIndex));
+    return chunk == null ? null : ByteBuffer.wrap(chunk).asReadOnlyBuffer();
+  }
+
+  public synchronized void put(String videoId, long chunkIndex, ByteBuffer data) {
+    final byte[] chunk = new byte[data.remaining()];
+    data.duplicate().get(chunk);
+    final byte[] previous = chunks.put(new ChunkKey(videoId, chunkIndex), chunk);
+    bytes += chunk.length - (previous == null ? 0 : previous.length);
+    final Iterator<byte[]> eldest = chunks.values().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= eldest.next().length;
+      eldest.remove();
+    }
+  }
+
+  public synchronized void removeVideo(String videoId) {
+    final Iterator<Map.Entry<ChunkKey, byte[]>> entries = chunks.entrySet().iterator();
+    while (entries.hasNext()) {
+      final Map.Entry<ChunkKey, byte[]> entry = entries.next();
+      if (entry.getKey().videoId.equals(videoId)) {
+        bytes -= entry.getValue().length;
+        entries.remove();
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    chunks.clear();
+    bytes = 0;
+  }
+
+  public synchronized long sizeInBytes() {
+    return bytes;
+  }
+
+  private static final class ChunkKey {
+    private final String videoId;
+    private final long index;
+
+    private ChunkKey(String videoId, long index) {
+      super();
+      this.videoId = videoId;
+      this.index = index;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ChunkKey)) {
+        return false;
+      }
+      final ChunkKey that = (ChunkKey) other;
+      return index == that.index && videoId.equals(that.videoId);
+    }
+
+    @Override
+    public int hashCode() {
+      return videoId.hashCode() * 31 + Long.hashCode(index);
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package org.proxy.cache;
+
+import org.proxy.codec.VideoCodec;
+import org.proxy.lib.Video;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Second-level video cache persisted as an append-only log file. An in-memory index maps each key
+ * to the offset of its latest record, so the log is only replayed once, when the store is opened.
+ */
+public class DiskVideoStore implements Closeable {
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final byte POPULAR = 3;
+
+  private static final Logger LOGGER = Logger.getLogger(DiskVideoStore.class.getName());
+
+  private static final int COMPACTION_MIN_RECORDS = 1024;
+
+  private final Path file;
+  private final VideoCodec codec;
+  private RandomAccessFile log;
+  private final Map<String, Long> index = new HashMap<>();
+  private long popularOffset = -1;
+  private int deadRecords = 0;
+
+  public DiskVideoStore(Path file) throws IOException {
+    this(file, new VideoCodec());
+  }
+
+  public DiskVideoStore(Path file, VideoCodec codec) throws IOException {
+    super();
+    this.file = file;
+    this.codec = codec;
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    this.log = new RandomAccessFile(file.toFile(), "rw");
+    replay();
+  }
+
+  public synchronized Video get(String key) {
+    final Long offset = index.get(key);
+    if (offset == null) {
+      return null;
+    }
+    try {
+      log.seek(offset + 1);
+      log.readUTF();
+      return readVideo(log);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Cannot read " + key + " from " + file, ex);
+    }
+  }
+
+  public synchronized void put(String key, Video video) {
+    final long offset = append(out -> {
+      out.writeByte(PUT);
+      out.writeUTF(key);
+      writeVideo(out, video);
+    });
+    if (index.put(key, offset) != null) {
+      deadRecords++;
+    }
+    compactIfNeeded();
+  }
+
+  public synchronized void remove(String key) {
+    if (index.remove(key) != null) {
+      append(out -> {
+        out.writeByte(REMOVE);
+        out.writeUTF(key);
+      });
+      deadRecords += 2;
+      compactIfNeeded();
+    }
+  }
+
+  public synchronized void clear() {
+    try {
+      log.setLength(0);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Cannot truncate " + file, ex);
+    }
+    index.clear();
+    popularOffset = -1;
+    deadRecords = 0;
+  }
+
+  public synchronized Map<String, Video> getPopular() {
+    if (popularOffset < 0) {
+      return null;
+    }
+    try {
+      log.seek(popularOffset + 1);
+      return readPopular(log);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Cannot read popular videos from " + file, ex);
+    }
+  }
+
+  public synchronized void putPopular(Map<String, Video> popular) {
+    final long offset = append(out -> {
+      out.writeByte(POPULAR);
+      out.writeInt(popular.size());
+      for (Map.Entry<String, Video> entry : popular.entrySet()) {
+        out.writeUTF(entry.getKey());
+        writeVideo(out, entry.getValue());
+      }
+    });
+    if (popularOffset >= 0) {
+      deadRecords++;
+    }
+    popularOffset = offset;
+    compactIfNeeded();
+  }
+
+  // Streams every live entry, e.g. to warm an in-memory cache on startup.
+  public synchronized void forEach(BiConsumer<String, Video> action) {
+    for (Map.Entry<String, Long> entry : index.entrySet()) {
+      action.accept(entry.getKey(), get(entry.getKey()));
+    }
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized void sync() throws IOException {
+    log.getFD().sync();
+  }
+
+  // Rewrites the log keeping only the live records.
+  public synchronized void compact() throws IOException {
+    final Map<String, Video> live = new LinkedHashMap<>();
+    forEach(live::put);
+    final Map<String, Video> popular = getPopular();
+
+    final Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+    Files.deleteIfExists(compacted);
+    try (DiskVideoStore target = new DiskVideoStore(compacted, codec)) {
+      live.forEach(target::put);
+      if (popular != null) {
+        target.putPopular(popular);
+      }
+      target.sync();
+    } catch (IOException | UncheckedIOException ex) {
+      Files.deleteIfExists(compacted);
+      throw ex;
+    }
+
+    // The live log stays open until the compacted one has replaced it, so a failed move leaves
+    // the store working on the old file.
+    try {
+      Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      Files.deleteIfExists(compacted);
+      throw ex;
+    }
+    final RandomAccessFile previous = log;
+    log = new RandomAccessFile(file.toFile(), "rw");
+    previous.close();
+    index.clear();
+    popularOffset = -1;
+    replay();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    log.close();
+  }
+
+  private void compactIfNeeded() {
+    if (deadRecords >= COMPACTION_MIN_RECORDS && deadRecords > index.size()) {
+      try {
+        compact();
+      } catch (IOException ex) {
+        throw new UncheckedIOException("Cannot compact " + file, ex);
+      }
+    }
+  }
+
+  // Replays the index from the log without decoding any video. Only a record cut short by the end
+  // of the file, as a crash leaves it, is dropped; anything else that does not parse fails the open.
+  private void replay() throws IOException {
+    deadRecords = 0;
+    long offset = 0;
+    log.seek(0);
+    try {
+      while (offset < log.length()) {
+        final byte type = log.readByte();
+        switch (type) {
+          case PUT -> {
+            final String key = log.readUTF();
+            skipVideo(log);
+            if (index.put(key, offset) != null) {
+              deadRecords++;
+            }
+          }
+          case REMOVE -> {
+            index.remove(log.readUTF());
+            deadRecords += 2;
+          }
+          case POPULAR -> {
+            skipPopular(log);
+            if (popularOffset >= 0) {
+              deadRecords++;
+            }
+            popularOffset = offset;
+          }
+          default -> throw new StreamCorruptedException(
+              "Unknown record type " + type + " at offset " + offset + " in " + file);
+        }
+        offset = log.getFilePointer();
+      }
+    } catch (EOFException ex) {
+      // A record torn by a crash: drop it and keep appending after the last complete one.
+      final long tornOffset = offset;
+      LOGGER.warning(() -> "Truncating incomplete record at offset " + tornOffset + " in " + file);
+      log.setLength(offset);
+    }
+    log.seek(log.length());
+  }
+
+  private long append(RecordWriter writer) {
+    try {
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+      writer.write(new DataOutputStream(buffer));
+      final long offset = log.length();
+      log.seek(offset);
+      log.write(buffer.toByteArray());
+      return offset;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Cannot append to " + file, ex);
+    }
+  }
+
+  private Map<String, Video> readPopular(RandomAccessFile in) throws IOException {
+    final int size = readCount(in);
+    final Map<String, Video> popular = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      popular.put(in.readUTF(), readVideo(in));
+    }
+    return popular;
+  }
+
+  private void skipPopular(RandomAccessFile in) throws IOException {
+    final int size = readCount(in);
+    for (int i = 0; i < size; i++) {
+      in.readUTF();
+      skipVideo(in);
+    }
+  }
+
+  private void writeVideo(DataOutputStream out, Video video) throws IOException {
+    final byte[] bytes = codec.encode(video);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private Video readVideo(RandomAccessFile in) throws IOException {
+    final byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    try {
+      return codec.decode(bytes);
+    } catch (RuntimeException ex) {
+      throw new StreamCorruptedException("Corrupt video record in " + file + ": " + ex);
+    }
+  }
+
+  private void skipVideo(RandomAccessFile in) throws IOException {
+    final int length = readLength(in);
+    in.seek(in.getFilePointer() + length);
+  }
+
+  // A length running past the end of the file is a torn record; a negative one is corruption.
+  private int readLength(RandomAccessFile in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      throw new StreamCorruptedException("Negative record length " + length + " in " + file);
+    }
+    if (length > in.length() - in.getFilePointer()) {
+      throw new EOFException("Record length " + length + " runs past the end of " + file);
+    }
+    return length;
+  }
+
+  private int readCount(RandomAccessFile in) throws IOException {
+    final int count = in.readInt();
+    if (count < 0) {
+      throw new StreamCorruptedException("Negative popular list size " + count + " in " + file);
+    }
+    return count;
+  }
+
+  private interface RecordWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+}
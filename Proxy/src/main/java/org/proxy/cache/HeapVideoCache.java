@@ -0,0 +1,35 @@
+package org.proxy.cache;
+
+import org.proxy.lib.Video;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HeapVideoCache implements VideoCache {
+  private final Map<String, Video> videos = new ConcurrentHashMap<>();
+
+  @Override
+  public Video get(String key) {
+    return videos.get(key);
+  }
+
+  @Override
+  public void put(String key, Video video) {
+    videos.put(key, video);
+  }
+
+  @Override
+  public void remove(String key) {
+    videos.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    videos.clear();
+  }
+
+  @Override
+  public int size() {
+    return videos.size();
+  }
+}
@@ -0,0 +1,78 @@
+package org.proxy.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers video IDs the upstream reported as unknown, for a short TTL. A bloom filter sits in
+ * front of the TTL map so the lookup for an ordinary ID is a few bit tests, and the map is only
+ * consulted for IDs that were (probably) marked missing. The filter cannot forget, so it is
+ * rebuilt from the live entries once it has absorbed more keys than it was sized for.
+ */
+public class NegativeCache {
+  private final long ttlNanos;
+  private final int expectedKeys;
+  private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+  private final AtomicInteger addedSinceRebuild = new AtomicInteger();
+  private volatile BloomFilter filter;
+
+  public NegativeCache(Duration ttl, int expectedKeys) {
+    super();
+    this.ttlNanos = ttl.toNanos();
+    this.expectedKeys = expectedKeys;
+    this.filter = new BloomFilter(expectedKeys);
+  }
+
+  public boolean isKnownMissing(String key) {
+    if (!filter.mightContain(key)) {
+      return false;
+    }
+    final Long expiry = expiries.get(key);
+    if (expiry == null) {
+      return false;
+    }
+    if (System.nanoTime() - expiry >= 0) {
+      expiries.remove(key, expiry);
+      return false;
+    }
+    return true;
+  }
+
+  public void markMissing(String key) {
+    expiries.put(key, System.nanoTime() + ttlNanos);
+    filter.add(key);
+    if (addedSinceRebuild.incrementAndGet() > expectedKeys) {
+      rebuild();
+    }
+  }
+
+  public void remove(String key) {
+    expiries.remove(key);
+  }
+
+  public void clear() {
+    expiries.clear();
+    filter.clear();
+    addedSinceRebuild.set(0);
+  }
+
+  public int size() {
+    return expiries.size();
+  }
+
+  private synchronized void rebuild() {
+    if (addedSinceRebuild.get() <= expectedKeys) {
+      return;
+    }
+    final long now = System.nanoTime();
+    expiries.entrySet().removeIf(entry -> now - entry.getValue() >= 0);
+    final BloomFilter rebuilt = new BloomFilter(Math.max(expectedKeys, expiries.size() * 2));
+    expiries.keySet().forEach(rebuilt::add);
+    filter = rebuilt;
+    // A key marked during the copy may only have reached the old filter; it is in the map by now.
+    expiries.keySet().forEach(rebuilt::add);
+    addedSinceRebuild.set(expiries.size());
+  }
+}
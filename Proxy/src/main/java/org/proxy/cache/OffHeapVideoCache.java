@@ -0,0 +1,273 @@
+package org.proxy.cache;
+
+import org.proxy.codec.VideoCodec;
+import org.proxy.lib.Video;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps encoded videos outside the Java heap so catalog size does not show up in GC pauses.
+ * Entries are appended to direct {@link ByteBuffer} slabs and found through an open-addressing
+ * (linear probing) hash index that also lives in a direct buffer. Each index slot holds the key
+ * hash and the entry address; an entry is {@code [int length][key][video]} encoded with
+ * {@link VideoCodec}. Overwritten and removed entries leave garbage in the slabs, which is
+ * reclaimed by copying the live entries into fresh slabs once it exceeds half of the used space.
+ */
+public class OffHeapVideoCache implements VideoCache {
+  private static final int SLOT_SIZE = 16;
+  private static final long EMPTY = 0;
+  private static final long TOMBSTONE = -1;
+  private static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+  private static final int INITIAL_SLOTS = 1024;
+
+  private final VideoCodec codec;
+  private final int slabSize;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private ByteBuffer index;
+  private int slots;
+  private int size = 0;
+  private int tombstones = 0;
+
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  private long usedBytes = 0;
+  private long garbageBytes = 0;
+
+  public OffHeapVideoCache() {
+    this(new VideoCodec(), DEFAULT_SLAB_SIZE);
+  }
+
+  public OffHeapVideoCache(VideoCodec codec, int slabSize) {
+    super();
+    this.codec = codec;
+    this.slabSize = slabSize;
+    allocateIndex(INITIAL_SLOTS);
+  }
+
+  @Override
+  public Video get(String key) {
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    lock.readLock().lock();
+    try {
+      final int slot = findSlot(hash(key), keyBytes);
+      if (slot < 0) {
+        return null;
+      }
+      final ByteBuffer entry = entry(index.getLong(slot * SLOT_SIZE + 8));
+      VideoCodec.skipString(entry);
+      return codec.decode(entry);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(String key, Video video) {
+    final int hash = hash(key);
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    final int length = VideoCodec.stringSize(key) + codec.encodedSize(video);
+    lock.writeLock().lock();
+    try {
+      final int existing = findSlot(hash, keyBytes);
+      if (existing >= 0) {
+        garbageBytes += entryLength(index.getLong(existing * SLOT_SIZE + 8));
+        index.putLong(existing * SLOT_SIZE + 8, TOMBSTONE);
+        size--;
+        tombstones++;
+      }
+      if ((size + tombstones + 1) * 4L > slots * 3L) {
+        rehash(size + 1 > slots / 2 ? slots * 2 : slots);
+      }
+      final long address = allocate(Integer.BYTES + length);
+      final ByteBuffer target = slab(address);
+      target.putInt(length);
+      VideoCodec.writeString(target, key);
+      codec.encode(video, target);
+      insert(hash, address);
+      size++;
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(String key) {
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    lock.writeLock().lock();
+    try {
+      final int slot = findSlot(hash(key), keyBytes);
+      if (slot >= 0) {
+        garbageBytes += entryLength(index.getLong(slot * SLOT_SIZE + 8));
+        index.putLong(slot * SLOT_SIZE + 8, TOMBSTONE);
+        size--;
+        tombstones++;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      // Direct buffers are released once the dropped ByteBuffer objects are collected.
+      slabs.clear();
+      usedBytes = 0;
+      garbageBytes = 0;
+      size = 0;
+      tombstones = 0;
+      allocateIndex(INITIAL_SLOTS);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Direct memory held by the slabs and the index.
+  public long offHeapBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = (long) slots * SLOT_SIZE;
+      for (ByteBuffer slab : slabs) {
+        bytes += slab.capacity();
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static int hash(String key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private void allocateIndex(int slotCount) {
+    slots = slotCount;
+    index = ByteBuffer.allocateDirect(slotCount * SLOT_SIZE);
+  }
+
+  private int findSlot(int hash, byte[] keyBytes) {
+    final int mask = slots - 1;
+    for (int slot = hash & mask, probes = 0; probes < slots; slot = (slot + 1) & mask, probes++) {
+      final long address = index.getLong(slot * SLOT_SIZE + 8);
+      if (address == EMPTY) {
+        return -1;
+      }
+      if (address != TOMBSTONE && index.getInt(slot * SLOT_SIZE) == hash && keyEquals(address, keyBytes)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private void insert(int hash, long address) {
+    final int mask = slots - 1;
+    int slot = hash & mask;
+    while (index.getLong(slot * SLOT_SIZE + 8) > EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    if (index.getLong(slot * SLOT_SIZE + 8) == TOMBSTONE) {
+      tombstones--;
+    }
+    index.putInt(slot * SLOT_SIZE, hash);
+    index.putLong(slot * SLOT_SIZE + 8, address);
+  }
+
+  private void rehash(int newSlots) {
+    final ByteBuffer oldIndex = index;
+    final int oldSlots = slots;
+    allocateIndex(newSlots);
+    tombstones = 0;
+    for (int slot = 0; slot < oldSlots; slot++) {
+      final long address = oldIndex.getLong(slot * SLOT_SIZE + 8);
+      if (address > EMPTY) {
+        insert(oldIndex.getInt(slot * SLOT_SIZE), address);
+      }
+    }
+  }
+
+  private boolean keyEquals(long address, byte[] keyBytes) {
+    final ByteBuffer entry = entry(address);
+    if (VideoCodec.readVarInt(entry) - 1 != keyBytes.length) {
+      return false;
+    }
+    final int position = entry.position();
+    for (int i = 0; i < keyBytes.length; i++) {
+      if (entry.get(position + i) != keyBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Addresses pack (slab number + 1) in the high int and the offset in the low int, so that
+  // they never collide with EMPTY or TOMBSTONE.
+  private long allocate(int length) {
+    ByteBuffer current = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+    if (current == null || current.remaining() < length) {
+      current = ByteBuffer.allocateDirect(Math.max(slabSize, length));
+      slabs.add(current);
+    }
+    final long address = ((long) slabs.size() << 32) | current.position();
+    current.position(current.position() + length);
+    usedBytes += length;
+    return address;
+  }
+
+  private ByteBuffer slab(long address) {
+    final ByteBuffer slab = slabs.get((int) (address >>> 32) - 1).duplicate();
+    slab.position((int) address);
+    return slab;
+  }
+
+  // A view positioned just after the length prefix.
+  private ByteBuffer entry(long address) {
+    final ByteBuffer entry = slab(address);
+    final int length = entry.getInt();
+    entry.limit(entry.position() + length);
+    return entry;
+  }
+
+  private int entryLength(long address) {
+    return Integer.BYTES + slab(address).getInt();
+  }
+
+  private void compactIfNeeded() {
+    if (garbageBytes < slabSize || garbageBytes * 2 < usedBytes) {
+      return;
+    }
+    final List<ByteBuffer> oldSlabs = new ArrayList<>(slabs);
+    slabs.clear();
+    usedBytes = 0;
+    garbageBytes = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      final long address = index.getLong(slot * SLOT_SIZE + 8);
+      if (address > EMPTY) {
+        final ByteBuffer source = oldSlabs.get((int) (address >>> 32) - 1).duplicate();
+        source.position((int) address);
+        final int length = Integer.BYTES + source.getInt((int) address);
+        source.limit((int) address + length);
+        final long moved = allocate(length);
+        slab(moved).put(source);
+        index.putLong(slot * SLOT_SIZE + 8, moved);
+      }
+    }
+  }
+}
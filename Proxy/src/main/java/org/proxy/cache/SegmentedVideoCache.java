@@ -0,0 +1,229 @@
+package org.proxy.cache;
+
+import org.proxy.lib.Video;
+import org.proxy.metrics.CacheMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU cache split into independently locked segments. A hit never takes a lock: it only
+ * records the entry in one of the segment's striped read buffers. The LRU order is brought up to
+ * date in batches, by whichever thread fills a buffer and wins a {@code tryLock}, or on the next
+ * write. The buffers are lossy (a full slot is simply overwritten), which costs a little LRU
+ * precision under heavy contention instead of throughput.
+ */
+public class SegmentedVideoCache implements VideoCache {
+  private static final int READ_BUFFER_SIZE = 32;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final CacheMetrics metrics;
+
+  public SegmentedVideoCache(int maxEntries) {
+    this(maxEntries, 16, CacheMetrics.NOOP);
+  }
+
+  // segmentCount is rounded up to a power of two and maxEntries is split evenly across the
+  // segments (rounded up), so eviction is per segment. Evictions are reported to metrics.
+  public SegmentedVideoCache(int maxEntries, int segmentCount, CacheMetrics metrics) {
+    super();
+    final int count = segmentCount <= 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+    final int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(Math.max(1, (maxEntries + count - 1) / count), stripes);
+    }
+    this.segmentMask = count - 1;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Video get(String key) {
+    final Segment segment = segmentFor(key);
+    final Node node = segment.data.get(key);
+    if (node == null) {
+      return null;
+    }
+    segment.recordRead(node);
+    return node.value;
+  }
+
+  @Override
+  public void put(String key, Video video) {
+    segmentFor(key).put(key, video);
+  }
+
+  @Override
+  public void remove(String key) {
+    segmentFor(key).remove(key);
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.data.size();
+    }
+    return size;
+  }
+
+  private Segment segmentFor(String key) {
+    final int h = key.hashCode() * 0x9E3779B9;
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  private static final class Node {
+    private final String key;
+    private volatile Video value;
+    // LRU links, guarded by the segment lock.
+    private Node prev;
+    private Node next;
+    private boolean linked;
+
+    private Node(String key, Video value) {
+      super();
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private final class Segment {
+    private final Map<String, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int capacity;
+    private final AtomicReferenceArray<Node>[] readBuffers;
+    private final AtomicLong[] readCounters;
+    private final long[] drainedUpTo;
+    private final int stripeMask;
+    // Sentinel of the circular LRU list: head.next is the eldest entry, head.prev the newest.
+    private final Node head = new Node(null, null);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Segment(int capacity, int stripes) {
+      super();
+      this.capacity = capacity;
+      this.readBuffers = new AtomicReferenceArray[stripes];
+      this.readCounters = new AtomicLong[stripes];
+      this.drainedUpTo = new long[stripes];
+      for (int i = 0; i < stripes; i++) {
+        readBuffers[i] = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        readCounters[i] = new AtomicLong();
+      }
+      this.stripeMask = stripes - 1;
+      head.prev = head;
+      head.next = head;
+    }
+
+    private void recordRead(Node node) {
+      // The identity hash is fixed per thread, so a thread keeps writing to the same stripe.
+      final int h = Thread.currentThread().hashCode();
+      final int stripe = (h ^ (h >>> 16)) & stripeMask;
+      final long index = readCounters[stripe].getAndIncrement();
+      readBuffers[stripe].lazySet((int) (index & READ_BUFFER_MASK), node);
+      if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && lock.tryLock()) {
+        try {
+          drainReadBuffers();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void put(String key, Video video) {
+      lock.lock();
+      try {
+        drainReadBuffers();
+        Node node = data.get(key);
+        if (node == null) {
+          node = new Node(key, video);
+          data.put(key, node);
+        } else {
+          node.value = video;
+        }
+        moveToNewest(node);
+        while (data.size() > capacity) {
+          final Node eldest = head.next;
+          unlink(eldest);
+          data.remove(eldest.key, eldest);
+          metrics.recordEviction(eldest.key);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void remove(String key) {
+      lock.lock();
+      try {
+        final Node node = data.remove(key);
+        if (node != null) {
+          unlink(node);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clear() {
+      lock.lock();
+      try {
+        data.clear();
+        head.prev = head;
+        head.next = head;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+          for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            readBuffers[stripe].set(i, null);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // Replays the recorded reads, oldest first, into the LRU order. Caller holds the lock.
+    private void drainReadBuffers() {
+      for (int stripe = 0; stripe <= stripeMask; stripe++) {
+        final long end = readCounters[stripe].get();
+        final long start = Math.max(drainedUpTo[stripe], end - READ_BUFFER_SIZE);
+        for (long index = start; index < end; index++) {
+          final Node node = readBuffers[stripe].getAndSet((int) (index & READ_BUFFER_MASK), null);
+          if (node != null && node.linked) {
+            moveToNewest(node);
+          }
+        }
+        drainedUpTo[stripe] = end;
+      }
+    }
+
+    private void moveToNewest(Node node) {
+      if (node.linked) {
+        unlink(node);
+      }
+      node.prev = head.prev;
+      node.next = head;
+      head.prev.next = node;
+      head.prev = node;
+      node.linked = true;
+    }
+
+    private void unlink(Node node) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      node.prev = null;
+      node.next = null;
+      node.linked = false;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package org.proxy.cache;
+
+import org.proxy.lib.Video;
+
+/**
+ * Storage backend for the videos cached by {@code YouTubeCacheProxy}.
+ */
+public interface VideoCache {
+  Video get(String key);
+
+  void put(String key, Video video);
+
+  void remove(String key);
+
+  void clear();
+
+  int size();
+}
@@ -0,0 +1,25 @@
+package org.proxy.caching;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface method whose results a {@link CachingProxyFactory} proxy may cache.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+  // Name under which the proxy's cache for this method is cleared and sized; methods sharing a
+  // name are cleared together but never share entries. Defaults to the method name.
+  String cache() default "";
+
+  // Time to live of an entry; 0 keeps entries until the cache is cleared.
+  long ttlMillis() default 0;
+
+  // Arguments forming the key, e.g. "#0" or "#0,#2"; all arguments when empty.
+  String key() default "";
+}
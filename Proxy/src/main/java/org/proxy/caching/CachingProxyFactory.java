@@ -0,0 +1,279 @@
+package org.proxy.caching;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds caching proxies for arbitrary service interfaces from their {@link Cacheable}
+ * annotations, the generic counterpart of the hand-written {@code YouTubeCacheProxy}.
+ * Each interface method is resolved once, when the proxy is created, to a {@link MethodHandle}
+ * bound to the target, so a call costs a cache lookup plus a direct handle invocation. Every
+ * proxy has its own caches, one per method, each holding at most {@code maxEntriesPerCache}
+ * entries.
+ */
+public class CachingProxyFactory {
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  private static final Object NO_ARGUMENTS_KEY = new Object();
+  private static final Object NULL_KEY = new Object();
+
+  private final int maxEntriesPerCache;
+
+  public CachingProxyFactory() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public CachingProxyFactory(int maxEntriesPerCache) {
+    super();
+    if (maxEntriesPerCache < 1) {
+      throw new IllegalArgumentException("maxEntriesPerCache must be positive: " + maxEntriesPerCache);
+    }
+    this.maxEntriesPerCache = maxEntriesPerCache;
+  }
+
+  public <T> T create(Class<T> serviceInterface, T target) {
+    return create(serviceInterface, serviceInterface, target);
+  }
+
+  // Reads the @Cacheable annotations from annotatedInterface instead, matching methods by name and
+  // parameter types, so an interface that cannot depend on this package can still be cached.
+  @SuppressWarnings("unchecked")
+  public <T> T create(Class<T> serviceInterface, Class<?> annotatedInterface, T target) {
+    if (!serviceInterface.isInterface()) {
+      throw new IllegalArgumentException(serviceInterface.getName() + " is not an interface");
+    }
+    final CachingHandler handler = new CachingHandler(target);
+    for (Method method : serviceInterface.getMethods()) {
+      handler.invokers.put(method, invokerFor(method, annotationOf(method, annotatedInterface), target, handler));
+    }
+    return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(), new Class<?>[] {serviceInterface}, handler);
+  }
+
+  public static void clear(Object proxy, String cacheName) {
+    for (MethodCache cache : handlerOf(proxy).cachesNamed(cacheName)) {
+      cache.clear();
+    }
+  }
+
+  public static void clearAll(Object proxy) {
+    for (List<MethodCache> caches : handlerOf(proxy).caches.values()) {
+      caches.forEach(MethodCache::clear);
+    }
+  }
+
+  public static int size(Object proxy, String cacheName) {
+    int size = 0;
+    for (MethodCache cache : handlerOf(proxy).cachesNamed(cacheName)) {
+      size += cache.size();
+    }
+    return size;
+  }
+
+  private static CachingHandler handlerOf(Object proxy) {
+    if (proxy != null && Proxy.isProxyClass(proxy.getClass())
+        && Proxy.getInvocationHandler(proxy) instanceof CachingHandler) {
+      return (CachingHandler) Proxy.getInvocationHandler(proxy);
+    }
+    throw new IllegalArgumentException("Not a caching proxy: " + proxy);
+  }
+
+  private static Cacheable annotationOf(Method method, Class<?> annotatedInterface) {
+    if (annotatedInterface == method.getDeclaringClass()) {
+      return method.getAnnotation(Cacheable.class);
+    }
+    try {
+      return annotatedInterface.getMethod(method.getName(), method.getParameterTypes()).getAnnotation(Cacheable.class);
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private Invoker invokerFor(Method method, Cacheable cacheable, Object target, CachingHandler handler) {
+    final MethodHandle handle;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(method)
+          .bindTo(target)
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(MethodType.methodType(Object.class, Object[].class));
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException("Cannot access " + method, ex);
+    }
+
+    if (cacheable == null) {
+      return args -> (Object) handle.invokeExact(args);
+    }
+    final String cacheName = cacheable.cache().isEmpty() ? method.getName() : cacheable.cache();
+    final long ttlNanos = cacheable.ttlMillis() * 1_000_000L;
+    final MethodCache cache = new MethodCache(maxEntriesPerCache, ttlNanos);
+    handler.caches.computeIfAbsent(cacheName, name -> new ArrayList<>()).add(cache);
+    final int[] keyArguments = parseKey(cacheable.key(), method);
+
+    return args -> {
+      final Object key = key(keyArguments, args);
+      final Object cached = cache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+      final Object value = (Object) handle.invokeExact(args);
+      if (value != null) {
+        cache.put(key, value);
+      }
+      return value;
+    };
+  }
+
+  private static int[] parseKey(String expression, Method method) {
+    if (expression.isBlank()) {
+      final int[] all = new int[method.getParameterCount()];
+      Arrays.setAll(all, i -> i);
+      return all;
+    }
+    final String[] parts = expression.split(",");
+    final int[] indexes = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      final String part = parts[i].trim();
+      try {
+        indexes[i] = Integer.parseInt(part.substring(1));
+      } catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+        indexes[i] = -1;
+      }
+      if (!part.startsWith("#") || indexes[i] < 0 || indexes[i] >= method.getParameterCount()) {
+        throw new IllegalArgumentException("Invalid key expression '" + expression + "' on " + method);
+      }
+    }
+    return indexes;
+  }
+
+  private static Object key(int[] keyArguments, Object[] args) {
+    switch (keyArguments.length) {
+      case 0:
+        return NO_ARGUMENTS_KEY;
+      case 1:
+        final Object key = args[keyArguments[0]];
+        return key != null ? key : NULL_KEY;
+      default:
+        final Object[] parts = new Object[keyArguments.length];
+        for (int i = 0; i < keyArguments.length; i++) {
+          parts[i] = args[keyArguments[i]];
+        }
+        return Arrays.asList(parts);
+    }
+  }
+
+  private static Object invokeObjectMethod(Object proxy, Object target, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "CachingProxy[" + target + "]";
+      default:
+        throw new UnsupportedOperationException(method.toString());
+    }
+  }
+
+  private interface Invoker {
+    Object invoke(Object[] args) throws Throwable;
+  }
+
+  private static final class CachingHandler implements InvocationHandler {
+    private final Object target;
+    private final Map<Method, Invoker> invokers = new HashMap<>();
+    // Caches by name; methods sharing a name are cleared and sized together but keep their own entries.
+    private final Map<String, List<MethodCache>> caches = new HashMap<>();
+
+    private CachingHandler(Object target) {
+      super();
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      final Invoker invoker = invokers.get(method);
+      if (invoker != null) {
+        return invoker.invoke(args == null ? new Object[0] : args);
+      }
+      return invokeObjectMethod(proxy, target, method, args);
+    }
+
+    private List<MethodCache> cachesNamed(String cacheName) {
+      return caches.getOrDefault(cacheName, Collections.emptyList());
+    }
+  }
+
+  // Bounded cache of one method's results. With a time to live, entries are kept in insertion
+  // order, which is also their expiry order, and expired ones are dropped from the head on every
+  // put; without one, the least recently used entry makes room for a new one.
+  private static final class MethodCache {
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, Entry> entries;
+
+    private MethodCache(int maxEntries, long ttlNanos) {
+      super();
+      this.ttlNanos = ttlNanos;
+      this.entries = new LinkedHashMap<>(16, 0.75f, ttlNanos == 0) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+          return size() > maxEntries;
+        }
+      };
+    }
+
+    synchronized Object get(Object key) {
+      final Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (ttlNanos != 0 && System.nanoTime() - entry.expiresAt >= 0) {
+        entries.remove(key);
+        return null;
+      }
+      return entry.value;
+    }
+
+    synchronized void put(Object key, Object value) {
+      final long now = System.nanoTime();
+      if (ttlNanos != 0) {
+        final Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext() && now - oldest.next().expiresAt >= 0) {
+          oldest.remove();
+        }
+        // Re-inserting moves the key to the tail, keeping insertion order equal to expiry order.
+        entries.remove(key);
+      }
+      entries.put(key, new Entry(value, now + ttlNanos));
+    }
+
+    synchronized void clear() {
+      entries.clear();
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final long expiresAt;
+
+    private Entry(Object value, long expiresAt) {
+      super();
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
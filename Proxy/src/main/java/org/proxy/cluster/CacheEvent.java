@@ -0,0 +1,53 @@
+package org.proxy.cluster;
+
+import org.proxy.lib.Video;
+
+import java.util.Map;
+
+/**
+ * A cache change broadcast between proxy instances. {@code origin} identifies the sending proxy
+ * so that it can ignore its own events.
+ */
+public final class CacheEvent {
+  public enum Type { INVALIDATE, INVALIDATE_POPULAR, CLEAR, LOADED, POPULAR_LOADED }
+
+  public final Type type;
+  public final String origin;
+  public final String key;
+  public final Video video;
+  public final Map<String, Video> popular;
+
+  private CacheEvent(Type type, String origin, String key, Video video, Map<String, Video> popular) {
+    super();
+    this.type = type;
+    this.origin = origin;
+    this.key = key;
+    this.video = video;
+    this.popular = popular;
+  }
+
+  public static CacheEvent invalidate(String origin, String key) {
+    return new CacheEvent(Type.INVALIDATE, origin, key, null, null);
+  }
+
+  public static CacheEvent invalidatePopular(String origin) {
+    return new CacheEvent(Type.INVALIDATE_POPULAR, origin, null, null, null);
+  }
+
+  public static CacheEvent clear(String origin) {
+    return new CacheEvent(Type.CLEAR, origin, null, null, null);
+  }
+
+  public static CacheEvent loaded(String origin, String key, Video video) {
+    return new CacheEvent(Type.LOADED, origin, key, video, null);
+  }
+
+  public static CacheEvent popularLoaded(String origin, Map<String, Video> popular) {
+    return new CacheEvent(Type.POPULAR_LOADED, origin, null, null, popular);
+  }
+
+  @Override
+  public String toString() {
+    return type + (key != null ? "(" + key + ")" : "") + " from " + origin;
+  }
+}
@@ -0,0 +1,14 @@
+package org.proxy.cluster;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Channel over which proxy instances broadcast invalidations and, optionally, loaded entries.
+ * Delivery is best effort; every subscriber also receives the events it published.
+ */
+public interface CacheEventBus extends Closeable {
+  void publish(CacheEvent event);
+
+  void subscribe(Consumer<CacheEvent> listener);
+}
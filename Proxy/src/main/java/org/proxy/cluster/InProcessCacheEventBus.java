@@ -0,0 +1,27 @@
+package org.proxy.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Delivers events synchronously to every proxy in the same JVM; mainly for tests and demos.
+public class InProcessCacheEventBus implements CacheEventBus {
+  private final List<Consumer<CacheEvent>> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(CacheEvent event) {
+    for (Consumer<CacheEvent> listener : listeners) {
+      listener.accept(event);
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheEvent> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void close() {
+    listeners.clear();
+  }
+}
@@ -0,0 +1,159 @@
+package org.proxy.cluster;
+
+import org.proxy.codec.VideoCodec;
+import org.proxy.lib.Video;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts events as UDP datagrams to a fixed list of peer ports on the loopback interface,
+ * which is enough to run several proxy processes side by side on one machine. An event that does
+ * not fit into one datagram is sent without its payload, i.e. it degrades to an invalidation.
+ */
+public class SocketCacheEventBus implements CacheEventBus {
+  private static final Logger LOGGER = Logger.getLogger(SocketCacheEventBus.class.getName());
+  private static final int MAX_DATAGRAM = 65_507;
+
+  private final VideoCodec codec = new VideoCodec();
+  private final DatagramChannel channel;
+  private final List<InetSocketAddress> peers = new ArrayList<>();
+  private final List<Consumer<CacheEvent>> listeners = new CopyOnWriteArrayList<>();
+  private final Thread receiver;
+  // One send buffer per publishing thread, like the receiver's single buffer.
+  private final ThreadLocal<ByteBuffer> sendBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_DATAGRAM));
+
+  public SocketCacheEventBus(int localPort, List<Integer> peerPorts) throws IOException {
+    super();
+    final InetAddress loopback = InetAddress.getLoopbackAddress();
+    this.channel = DatagramChannel.open().bind(new InetSocketAddress(loopback, localPort));
+    for (int peerPort : peerPorts) {
+      peers.add(new InetSocketAddress(loopback, peerPort));
+    }
+    this.receiver = new Thread(this::receiveLoop, "cache-event-bus-" + localPort);
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  @Override
+  public void publish(CacheEvent event) {
+    for (Consumer<CacheEvent> listener : listeners) {
+      listener.accept(event);
+    }
+    // Encoded only after the listeners have run: one of them may publish from this thread, which
+    // would otherwise overwrite the shared buffer while it is still being sent.
+    final ByteBuffer datagram = encode(event);
+    for (InetSocketAddress peer : peers) {
+      try {
+        channel.send(datagram.duplicate(), peer);
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "Cannot send " + event + " to " + peer, ex);
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheEvent> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    listeners.clear();
+  }
+
+  private void receiveLoop() {
+    final ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+    while (channel.isOpen()) {
+      try {
+        buffer.clear();
+        channel.receive(buffer);
+        buffer.flip();
+        final CacheEvent event = decode(buffer);
+        for (Consumer<CacheEvent> listener : listeners) {
+          listener.accept(event);
+        }
+      } catch (ClosedChannelException ex) {
+        return;
+      } catch (IOException | RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "Dropping malformed cache event", ex);
+      }
+    }
+  }
+
+  private ByteBuffer encode(CacheEvent event) {
+    final ByteBuffer buffer = sendBuffer.get();
+    buffer.clear();
+    try {
+      writeEvent(buffer, event, true);
+    } catch (BufferOverflowException ex) {
+      buffer.clear();
+      writeEvent(buffer, event, false);
+    }
+    return buffer.flip();
+  }
+
+  private void writeEvent(ByteBuffer buffer, CacheEvent event, boolean withPayload) {
+    final CacheEvent.Type type = withPayload ? event.type : withoutPayload(event.type);
+    buffer.put((byte) type.ordinal());
+    VideoCodec.writeString(buffer, event.origin);
+    VideoCodec.writeString(buffer, event.key);
+    if (type == CacheEvent.Type.LOADED) {
+      codec.encode(event.video, buffer);
+    } else if (type == CacheEvent.Type.POPULAR_LOADED) {
+      VideoCodec.writeVarInt(buffer, event.popular.size());
+      for (Map.Entry<String, Video> entry : event.popular.entrySet()) {
+        VideoCodec.writeString(buffer, entry.getKey());
+        codec.encode(entry.getValue(), buffer);
+      }
+    }
+  }
+
+  private static CacheEvent.Type withoutPayload(CacheEvent.Type type) {
+    switch (type) {
+      case LOADED:
+        return CacheEvent.Type.INVALIDATE;
+      case POPULAR_LOADED:
+        return CacheEvent.Type.INVALIDATE_POPULAR;
+      default:
+        return type;
+    }
+  }
+
+  private CacheEvent decode(ByteBuffer buffer) {
+    final CacheEvent.Type type = CacheEvent.Type.values()[buffer.get()];
+    final String origin = VideoCodec.readString(buffer);
+    final String key = VideoCodec.readString(buffer);
+    switch (type) {
+      case INVALIDATE:
+        return CacheEvent.invalidate(origin, key);
+      case INVALIDATE_POPULAR:
+        return CacheEvent.invalidatePopular(origin);
+      case CLEAR:
+        return CacheEvent.clear(origin);
+      case LOADED:
+        return CacheEvent.loaded(origin, key, codec.decode(buffer));
+      default:
+        final int size = VideoCodec.readVarInt(buffer);
+        final Map<String, Video> popular = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+          popular.put(VideoCodec.readString(buffer), codec.decode(buffer));
+        }
+        return CacheEvent.popularLoaded(origin, popular);
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package org.proxy.codec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded, thread-safe string pool. Once full it stops adding and hands strings back unchanged.
+ */
+public class StringInterner {
+  private final ConcurrentMap<String, String> pool = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  public StringInterner(int maxSize) {
+    super();
+    this.maxSize = maxSize;
+  }
+
+  public String intern(String value) {
+    final String pooled = pool.get(value);
+    if (pooled != null) {
+      return pooled;
+    }
+    if (pool.size() >= maxSize) {
+      return value;
+    }
+    final String previous = pool.putIfAbsent(value, value);
+    return previous != null ? previous : value;
+  }
+
+  public int size() {
+    return pool.size();
+  }
+}
@@ -0,0 +1,161 @@
+package org.proxy.codec;
+
+import org.proxy.lib.Video;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary format for {@link Video}: the id, title and data fields as length-prefixed UTF-8,
+ * where the prefix is a varint holding {@code length + 1} and {@code 0} encodes {@code null}.
+ */
+public class VideoCodec {
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+  private final StringInterner titleInterner;
+
+  public VideoCodec() {
+    this(null);
+  }
+
+  // Titles repeat a lot across a catalog; an interner lets decoded videos share one instance.
+  public VideoCodec(StringInterner titleInterner) {
+    super();
+    this.titleInterner = titleInterner;
+  }
+
+  public int encodedSize(Video video) {
+    return stringSize(video.id) + stringSize(video.title) + stringSize(video.data);
+  }
+
+  public byte[] encode(Video video) {
+    final ByteBuffer buffer = ByteBuffer.allocate(encodedSize(video));
+    encode(video, buffer);
+    return buffer.array();
+  }
+
+  // Writes the video at the buffer's position and advances it.
+  public void encode(Video video, ByteBuffer buffer) {
+    writeString(buffer, video.id);
+    writeString(buffer, video.title);
+    writeString(buffer, video.data);
+  }
+
+  public Video decode(byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  // Reads a video at the buffer's position and advances it. Heap buffers are decoded straight
+  // from their backing array, direct buffers through a per-thread scratch array.
+  public Video decode(ByteBuffer buffer) {
+    final String id = readString(buffer);
+    String title = readString(buffer);
+    final String data = readString(buffer);
+    if (titleInterner != null && title != null) {
+      title = titleInterner.intern(title);
+    }
+    return new Video(id, title, data);
+  }
+
+  public static int stringSize(String value) {
+    if (value == null) {
+      return 1;
+    }
+    final int length = utf8Length(value);
+    return varIntSize(length + 1) + length;
+  }
+
+  public static void writeString(ByteBuffer buffer, String value) {
+    if (value == null) {
+      writeVarInt(buffer, 0);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(buffer, bytes.length + 1);
+    buffer.put(bytes);
+  }
+
+  public static String readString(ByteBuffer buffer) {
+    final int length = readVarInt(buffer) - 1;
+    if (length < 0) {
+      return null;
+    }
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    final int position = buffer.position();
+    final String value;
+    if (buffer.hasArray()) {
+      value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+    } else {
+      byte[] scratch = SCRATCH.get();
+      if (scratch.length < length) {
+        scratch = new byte[Math.max(length, scratch.length * 2)];
+        SCRATCH.set(scratch);
+      }
+      buffer.get(position, scratch, 0, length);
+      value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    buffer.position(position + length);
+    return value;
+  }
+
+  public static void skipString(ByteBuffer buffer) {
+    final int length = readVarInt(buffer) - 1;
+    if (length > 0) {
+      buffer.position(buffer.position() + length);
+    }
+  }
+
+  public static int varIntSize(int value) {
+    int size = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  public static void writeVarInt(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  public static int readVarInt(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      final byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        // String.getBytes() replaces an unpaired surrogate with '?'.
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,59 @@
+package org.proxy.downloader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A small structured-concurrency scope: subtasks forked inside it never outlive it, and the first
+ * failure cancels every sibling (the same contract as {@code StructuredTaskScope.ShutdownOnFailure}).
+ */
+public final class FanOutScope implements AutoCloseable {
+  private final CompletionService<Object> completion;
+  private final List<Future<?>> forked = new ArrayList<>();
+  private int pending = 0;
+
+  public FanOutScope(ExecutorService executor) {
+    super();
+    this.completion = new ExecutorCompletionService<>(executor);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> Future<T> fork(Callable<? extends T> task) {
+    final Future<T> future = (Future<T>) completion.submit((Callable<Object>) task);
+    forked.add(future);
+    pending++;
+    return future;
+  }
+
+  public void join() throws InterruptedException, ExecutionException {
+    try {
+      while (pending > 0) {
+        final Future<Object> done = completion.take();
+        pending--;
+        done.get();
+      }
+    } catch (InterruptedException | ExecutionException | CancellationException ex) {
+      cancelAll();
+      throw ex;
+    }
+  }
+
+  private void cancelAll() {
+    for (Future<?> future : forked) {
+      future.cancel(true);
+    }
+    pending = 0;
+  }
+
+  @Override
+  public void close() {
+    cancelAll();
+  }
+}
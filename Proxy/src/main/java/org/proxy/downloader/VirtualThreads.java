@@ -0,0 +1,64 @@
+package org.proxy.downloader;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executor used for blocking library calls: one virtual thread per task on JDK 21+,
+ * a pool of daemon platform threads otherwise.
+ */
+public final class VirtualThreads {
+  private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+  private VirtualThreads() {
+    super();
+  }
+
+  public static boolean isSupported() {
+    return virtualExecutorFactory() != null;
+  }
+
+  public static ExecutorService newExecutor() {
+    final Method factory = virtualExecutorFactory();
+    if (factory != null) {
+      try {
+        return (ExecutorService) factory.invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        LOGGER.log(Level.WARNING, "Virtual threads unavailable, falling back to platform threads", ex);
+      }
+    }
+    return Executors.newCachedThreadPool(daemonThreads());
+  }
+
+  // Like newExecutor(), but without virtual threads at most maxThreads platform threads are started
+  // and further tasks wait in the queue. For callers that bound their concurrency anyway.
+  public static ExecutorService newBoundedExecutor(int maxThreads) {
+    if (isSupported()) {
+      return newExecutor();
+    }
+    return Executors.newFixedThreadPool(maxThreads, daemonThreads());
+  }
+
+  // Looked up reflectively so the module still compiles and runs on JDK 17.
+  private static Method virtualExecutorFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private static ThreadFactory daemonThreads() {
+    final AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      final Thread thread = new Thread(runnable, "youtube-io-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
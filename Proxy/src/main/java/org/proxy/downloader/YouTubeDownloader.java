@@ -2,19 +2,108 @@ package org.proxy.downloader;
 
 import org.proxy.lib.ThirdPartyYouTubeLib;
 import org.proxy.lib.Video;
+import org.proxy.stream.VideoChannel;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class YouTubeDownloader {
+  private static final Logger LOGGER = Logger.getLogger(YouTubeDownloader.class.getName());
+  private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
   private final ThirdPartyYouTubeLib api;
+  private final ExecutorService executor;
 
   public YouTubeDownloader(ThirdPartyYouTubeLib api) {
+    this(api, null);
+  }
+
+  // With an executor, renderPage() fetches its parts concurrently (use VirtualThreads.newExecutor()).
+  public YouTubeDownloader(ThirdPartyYouTubeLib api, ExecutorService executor) {
     super();
     this.api = api;
+    this.executor = executor;
   }
 
   public void renderVideoPage(String videoId) {
-    final Video video = api.getVideo(videoId);
+    printVideoPage(videoId, api.getVideo(videoId));
+  }
+
+  public void renderPopularVideos() {
+    printPopularVideos(api.popularVideos());
+  }
+
+  public long streamVideo(String videoId, WritableByteChannel out) throws IOException {
+    return streamVideo(videoId, out, DEFAULT_CHUNK_SIZE);
+  }
+
+  // Copies the payload to out chunk by chunk as it arrives, so the first bytes are written after
+  // one range request instead of after the whole download. Returns the number of bytes written.
+  public long streamVideo(String videoId, WritableByteChannel out, int chunkSize) throws IOException {
+    long total = 0;
+    try (VideoChannel in = new VideoChannel(api, videoId, chunkSize)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+      while (in.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          total += out.write(buffer);
+        }
+        buffer.clear();
+      }
+    }
+    return total;
+  }
+
+  // Renders the popular list followed by the given video pages. The library calls are forked in
+  // parallel when an executor is configured; the output is always printed in request order.
+  public void renderPage(String... videoIds) {
+    if (executor == null) {
+      renderPopularVideos();
+      for (String videoId : videoIds) {
+        renderVideoPage(videoId);
+      }
+      return;
+    }
+
+    final Map<String, Video> popular;
+    final List<Video> videos = new ArrayList<>(videoIds.length);
+    try (FanOutScope scope = new FanOutScope(executor)) {
+      final Future<Map<String, Video>> popularTask = scope.fork(api::popularVideos);
+      final List<Future<Video>> videoTasks = new ArrayList<>(videoIds.length);
+      for (String videoId : videoIds) {
+        videoTasks.add(scope.fork(() -> api.getVideo(videoId)));
+      }
+      scope.join();
+
+      popular = popularTask.get();
+      for (Future<Video> videoTask : videoTasks) {
+        videos.add(videoTask.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOGGER.warning("Page rendering interrupted");
+      return;
+    } catch (ExecutionException ex) {
+      LOGGER.log(Level.WARNING, "Page rendering failed", ex.getCause());
+      return;
+    }
+
+    printPopularVideos(popular);
+    for (int i = 0; i < videoIds.length; i++) {
+      printVideoPage(videoIds[i], videos.get(i));
+    }
+  }
+
+  private void printVideoPage(String videoId, Video video) {
     if (video == null) {
       System.out.println("\n-------------------------------");
       System.out.println("Error: Video not found for ID: " + videoId);
@@ -29,8 +118,7 @@ public class YouTubeDownloader {
     System.out.println("-------------------------------\n");
   }
 
-  public void renderPopularVideos() {
-    final HashMap<String, Video> list = api.popularVideos();
+  private void printPopularVideos(Map<String, Video> list) {
     System.out.println("\n-------------------------------");
     System.out.println("Most popular videos on YouTube (imagine fancy HTML)");
     if (list == null || list.isEmpty()) {
@@ -42,4 +130,4 @@ public class YouTubeDownloader {
     }
     System.out.println("-------------------------------\n");
   }
-} 
\ No newline at end of file
+}
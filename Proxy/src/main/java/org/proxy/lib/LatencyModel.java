@@ -0,0 +1,26 @@
+package org.proxy.lib;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long the simulated network takes to serve a resource of {@link ThirdPartyYouTubeClass}.
+ */
+public interface LatencyModel {
+  long latencyMillis(String resource);
+
+  static LatencyModel random(int minMillis, int maxMillis) {
+    return resource -> ThreadLocalRandom.current().nextInt(minMillis, maxMillis + 1);
+  }
+
+  // Each resource always gets the same latency for a given seed, so runs are reproducible
+  // regardless of thread scheduling.
+  static LatencyModel seeded(long seed, int minMillis, int maxMillis) {
+    return resource -> {
+      long h = seed ^ resource.hashCode() * 0x9E3779B97F4A7C15L;
+      h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+      h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return minMillis + Math.floorMod(h, maxMillis - minMillis + 1);
+    };
+  }
+}
@@ -1,11 +1,27 @@
 package org.proxy.lib;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Map;
 
 public class ThirdPartyYouTubeClass implements ThirdPartyYouTubeLib {
+  private final LatencyModel latencyModel;
+  private final boolean verbose;
+
+  public ThirdPartyYouTubeClass() {
+    this(LatencyModel.random(500, 1000), true);
+  }
+
+  // A quiet instance with a custom latency model, e.g. for load tests.
+  public ThirdPartyYouTubeClass(LatencyModel latencyModel, boolean verbose) {
+    super();
+    this.latencyModel = latencyModel;
+    this.verbose = verbose;
+  }
 
   @Override
-  public HashMap<String, Video> popularVideos() {
+  public Map<String, Video> popularVideos() {
     connectToServer("http://www.youtube.com");
     return getRandomVideos();
   }
@@ -16,57 +32,93 @@ public class ThirdPartyYouTubeClass implements ThirdPartyYouTubeLib {
     return getSomeVideo(videoId);
   }
 
+  @Override
+  public long videoSize(String videoId) {
+    connectToServer("http://www.youtube.com/" + videoId + "?head");
+    return videoData(videoId).getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @Override
+  public ByteBuffer readVideoRange(String videoId, long offset, int length) {
+    connectToServer("http://www.youtube.com/" + videoId + "?range=" + offset + "-" + (offset + length - 1));
+    log("Downloading " + length + " bytes of " + videoId + "... ");
+    experienceNetworkLatency("range:" + videoId + ":" + offset);
+    final byte[] data = videoData(videoId).getBytes(StandardCharsets.UTF_8);
+    final int start = (int) Math.min(offset, data.length);
+    final int end = (int) Math.min(offset + length, data.length);
+    logLine("Done!");
+    return ByteBuffer.wrap(data, start, end - start).slice();
+  }
+
   // Fake methods to simulate network activity.
 
-  private int random(int min, int max) {
-    return min + (int) (Math.random() * (max - min + 1));
+  private void log(String message) {
+    if (verbose) {
+      System.out.print(message);
+    }
   }
 
-  private void experienceNetworkLatency() {
-    final int randomLatency = random(5, 10);
-    System.out.println("(Simulating network latency of " + randomLatency * 100 + "ms)");
-    for (int i = 0; i < randomLatency; i++) {
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException ex) {
-        Thread.currentThread().interrupt();
-        System.err.println("Thread interrupted during latency simulation");
-      }
+  private void logLine(String message) {
+    if (verbose) {
+      System.out.println(message);
+    }
+  }
+
+  private void experienceNetworkLatency(String resource) {
+    final long latency = latencyModel.latencyMillis(resource);
+    logLine("(Simulating network latency of " + latency + "ms)");
+    try {
+      Thread.sleep(latency);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      System.err.println("Thread interrupted during latency simulation");
     }
   }
 
   private void connectToServer(String server) {
-    System.out.print("Connecting to " + server + "... ");
-    experienceNetworkLatency();
-    System.out.println("Connected!");
+    log("Connecting to " + server + "... ");
+    experienceNetworkLatency(server);
+    logLine("Connected!");
   }
 
   private HashMap<String, Video> getRandomVideos() {
-    System.out.print("Downloading popular videos list... ");
-    experienceNetworkLatency();
+    log("Downloading popular videos list... ");
+    experienceNetworkLatency("popular");
+    final HashMap<String, Video> hmap = catalog();
+    logLine("Done!");
+    return hmap;
+  }
+
+  private HashMap<String, Video> catalog() {
     final HashMap<String, Video> hmap = new HashMap<>();
     hmap.put("catzzzzzzzzz", new Video("sadgahasgdas", "Catzzzz.avi"));
     hmap.put("mkafksangasj", new Video("mkafksangasj", "Dog play with ball.mp4"));
     hmap.put("dancesvideoo", new Video("asdfas3ffasd", "Dancing video.mpq"));
     hmap.put("dlsdk5jfslaf", new Video("dlsdk5jfslaf", "Barcelona vs RealM.mov"));
     hmap.put("3sdfgsd1j333", new Video("3sdfgsd1j333", "Programming lesson #1.avi"));
-    System.out.println("Done!");
     return hmap;
   }
 
+  // The payload getSomeVideo() reports for a video, without the simulated latency.
+  private String videoData(String videoId) {
+    final Video video = catalog().get(videoId);
+    return video == null ? new Video(videoId, "Video Title for " + videoId).data
+        : "Specific video data for " + video.title;
+  }
+
   private Video getSomeVideo(String videoId) {
-    System.out.print("Downloading video details for " + videoId + "... ");
-    experienceNetworkLatency();
+    log("Downloading video details for " + videoId + "... ");
+    experienceNetworkLatency("video:" + videoId);
     final HashMap<String, Video> popular = getRandomVideos();
     Video video = popular.get(videoId);
     if (video == null) {
       video = new Video(videoId, "Video Title for " + videoId);
-      System.out.println("(Video not in popular list, created generic info)");
+      logLine("(Video not in popular list, created generic info)");
     } else {
-      video.data = "Specific video data for " + video.title;
+      video = new Video(video.id, video.title, "Specific video data for " + video.title);
     }
 
-    System.out.println("Done!");
+    logLine("Done!");
     return video;
   }
 } 
\ No newline at end of file
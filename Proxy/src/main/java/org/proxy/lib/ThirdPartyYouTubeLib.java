@@ -1,9 +1,31 @@
 package org.proxy.lib;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public interface ThirdPartyYouTubeLib {
-  HashMap<String, Video> popularVideos();
+  Map<String, Video> popularVideos();
 
   Video getVideo(String videoId);
-} 
\ No newline at end of file
+
+  // Size of the video payload in bytes, or -1 for an unknown video.
+  default long videoSize(String videoId) {
+    final Video video = getVideo(videoId);
+    return video == null ? -1 : video.data.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  // Range request for up to length bytes of the payload starting at offset; the returned buffer
+  // is empty past the end and null for an unknown video. Libraries that can serve ranges
+  // natively override this instead of materializing the whole payload.
+  default ByteBuffer readVideoRange(String videoId, long offset, int length) {
+    final Video video = getVideo(videoId);
+    if (video == null) {
+      return null;
+    }
+    final byte[] data = video.data.getBytes(StandardCharsets.UTF_8);
+    final int start = (int) Math.min(offset, data.length);
+    final int end = (int) Math.min(offset + length, data.length);
+    return ByteBuffer.wrap(data, start, end - start).slice();
+  }
+}
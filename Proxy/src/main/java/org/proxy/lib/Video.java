@@ -1,14 +1,19 @@
 package org.proxy.lib;
 
-public class Video {
-  public String id;
-  public String title;
-  public String data;
+// Immutable, so cached instances can be handed out to any number of callers.
+public final class Video {
+  public final String id;
+  public final String title;
+  public final String data;
 
   public Video(String id, String title) {
+    this(id, title, "Random video data for " + title);
+  }
+
+  public Video(String id, String title, String data) {
     super();
     this.id = id;
     this.title = title;
-    this.data = "Random video data for " + title;
+    this.data = data;
   }
-} 
\ No newline at end of file
+}
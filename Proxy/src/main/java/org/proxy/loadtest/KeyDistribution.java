@@ -0,0 +1,39 @@
+package org.proxy.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks which video a simulated user requests next, as an index in {@code [0, keyCount)}.
+ */
+public interface KeyDistribution {
+  int nextKey(SplittableRandom random);
+
+  static KeyDistribution uniform(int keyCount) {
+    return random -> random.nextInt(keyCount);
+  }
+
+  static KeyDistribution zipfian(int keyCount, double exponent) {
+    return new ZipfianDistribution(keyCount, exponent);
+  }
+
+  // hotAccessFraction of the requests go to the first hotKeyFraction of the keys.
+  static KeyDistribution hotspot(int keyCount, double hotKeyFraction, double hotAccessFraction) {
+    final int hotKeys = Math.max(1, (int) (keyCount * hotKeyFraction));
+    return random -> random.nextDouble() < hotAccessFraction || hotKeys == keyCount
+        ? random.nextInt(hotKeys)
+        : hotKeys + random.nextInt(keyCount - hotKeys);
+  }
+
+  static KeyDistribution parse(String name, int keyCount) {
+    switch (name) {
+      case "uniform":
+        return uniform(keyCount);
+      case "zipfian":
+        return zipfian(keyCount, 0.99);
+      case "hotspot":
+        return hotspot(keyCount, 0.2, 0.8);
+      default:
+        throw new IllegalArgumentException("Unknown key distribution: " + name);
+    }
+  }
+}
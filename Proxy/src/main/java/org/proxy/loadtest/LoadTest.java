@@ -0,0 +1,147 @@
+package org.proxy.loadtest;
+
+import org.proxy.cache.HeapVideoCache;
+import org.proxy.cache.SegmentedVideoCache;
+import org.proxy.downloader.VirtualThreads;
+import org.proxy.lib.LatencyModel;
+import org.proxy.lib.ThirdPartyYouTubeClass;
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.metrics.LatencyHistogram;
+import org.proxy.metrics.SimpleCacheMetrics;
+import org.proxy.proxy.YouTubeCacheProxy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the naive and the proxied library with the same seeded workload and compares their
+ * latency percentiles. The library is called directly, without the downloader's page printing.
+ *
+ * <p>Options (all {@code --name=value}): concurrency, requests, keys, distribution
+ * (uniform|zipfian|hotspot), popularRatio, seed, minLatencyMs, maxLatencyMs, maxEntries (bounds the
+ * proxy with a {@link SegmentedVideoCache}; 0 keeps the unbounded heap cache).
+ */
+public final class LoadTest {
+  private final int concurrency;
+  private final int requests;
+  private final int keyCount;
+  private final String distributionName;
+  private final double popularRatio;
+  private final long seed;
+  private final LatencyModel latencyModel;
+  private final int maxEntries;
+
+  private LoadTest(Map<String, String> options) {
+    super();
+    this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+    this.requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+    this.keyCount = Integer.parseInt(options.getOrDefault("keys", "1000"));
+    this.distributionName = options.getOrDefault("distribution", "zipfian");
+    this.popularRatio = Double.parseDouble(options.getOrDefault("popularRatio", "0.1"));
+    this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    this.latencyModel = LatencyModel.seeded(seed,
+        Integer.parseInt(options.getOrDefault("minLatencyMs", "2")),
+        Integer.parseInt(options.getOrDefault("maxLatencyMs", "10")));
+    this.maxEntries = Integer.parseInt(options.getOrDefault("maxEntries", "0"));
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      final String[] option = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(option[0], option.length > 1 ? option[1] : "true");
+    }
+    new LoadTest(options).run();
+  }
+
+  private void run() throws InterruptedException {
+    System.out.printf("Load test: %d requests, concurrency %d, %d keys (%s), %.0f%% popular-list requests, seed %d%n",
+        requests, concurrency, keyCount, distributionName, popularRatio * 100, seed);
+
+    final Result naive = drive(new ThirdPartyYouTubeClass(latencyModel, false));
+
+    final SimpleCacheMetrics metrics = new SimpleCacheMetrics();
+    final YouTubeCacheProxy proxy = YouTubeCacheProxy.builder()
+        .service(new ThirdPartyYouTubeClass(latencyModel, false))
+        .cache(maxEntries > 0 ? new SegmentedVideoCache(maxEntries, 16, metrics) : new HeapVideoCache())
+        .metrics(metrics)
+        .build();
+    final Result proxied = drive(proxy);
+
+    System.out.printf("%-10s %12s %10s %10s %10s %10s %10s%n",
+        "library", "throughput", "mean", "p50", "p99", "p99.9", "max");
+    naive.print("naive");
+    proxied.print("proxied");
+    System.out.printf("Proxy hit ratio: %.1f%%, upstream loads: %d, evictions: %d%n",
+        metrics.getHitRatio() * 100, metrics.getLoadLatency().getCount(), metrics.getEvictionCount());
+  }
+
+  private Result drive(ThirdPartyYouTubeLib library) throws InterruptedException {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final LongAdder failures = new LongAdder();
+    final KeyDistribution distribution = KeyDistribution.parse(distributionName, keyCount);
+    final CountDownLatch done = new CountDownLatch(concurrency);
+    final ExecutorService executor = VirtualThreads.newExecutor();
+    final long start = System.nanoTime();
+    for (int worker = 0; worker < concurrency; worker++) {
+      final int workerRequests = requests / concurrency + (worker < requests % concurrency ? 1 : 0);
+      final SplittableRandom random = new SplittableRandom(seed * 31 + worker);
+      executor.execute(() -> {
+        try {
+          for (int i = 0; i < workerRequests; i++) {
+            final boolean popular = random.nextDouble() < popularRatio;
+            final String videoId = String.format("video%07d", distribution.nextKey(random));
+            final long requestStart = System.nanoTime();
+            try {
+              if (popular) {
+                library.popularVideos();
+              } else {
+                library.getVideo(videoId);
+              }
+            } catch (RuntimeException ex) {
+              failures.increment();
+            }
+            histogram.record(System.nanoTime() - requestStart);
+          }
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    final long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+    return new Result(histogram, elapsed, failures.sum());
+  }
+
+  private static final class Result {
+    private final LatencyHistogram histogram;
+    private final long elapsedNanos;
+    private final long failures;
+
+    private Result(LatencyHistogram histogram, long elapsedNanos, long failures) {
+      super();
+      this.histogram = histogram;
+      this.elapsedNanos = elapsedNanos;
+      this.failures = failures;
+    }
+
+    private void print(String label) {
+      final double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+      System.out.printf("%-10s %10.0f/s %8.2fms %8.2fms %8.2fms %8.2fms %8.2fms%s%n", label,
+          histogram.getCount() / seconds, millis(histogram.getMean()),
+          millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+          millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMax()),
+          failures > 0 ? "  (" + failures + " failed)" : "");
+    }
+
+    private static double millis(double nanos) {
+      return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package org.proxy.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Key k (0-based) is drawn with probability proportional to 1 / (k + 1)^exponent.
+class ZipfianDistribution implements KeyDistribution {
+  private final double[] cumulative;
+
+  ZipfianDistribution(int keyCount, double exponent) {
+    super();
+    cumulative = new double[keyCount];
+    double sum = 0;
+    for (int k = 0; k < keyCount; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    for (int k = 0; k < keyCount; k++) {
+      cumulative[k] /= sum;
+    }
+  }
+
+  @Override
+  public int nextKey(SplittableRandom random) {
+    final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+  }
+}
@@ -0,0 +1,31 @@
+package org.proxy.metrics;
+
+/**
+ * Receives cache events from {@code YouTubeCacheProxy}. Every method defaults to a no-op so an
+ * implementation only overrides what it records.
+ */
+public interface CacheMetrics {
+  CacheMetrics NOOP = new CacheMetrics() {
+  };
+
+  default void recordHit(String key) {
+  }
+
+  default void recordMiss(String key) {
+  }
+
+  default void recordLoadSuccess(long nanos) {
+  }
+
+  default void recordLoadFailure(long nanos) {
+  }
+
+  default void recordEviction(String key) {
+  }
+
+  default void loadStarted() {
+  }
+
+  default void loadFinished() {
+  }
+}
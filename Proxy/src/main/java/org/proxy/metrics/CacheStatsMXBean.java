@@ -0,0 +1,31 @@
+package org.proxy.metrics;
+
+import java.util.List;
+
+public interface CacheStatsMXBean {
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRatio();
+
+  long getLoadSuccessCount();
+
+  long getLoadFailureCount();
+
+  long getEvictionCount();
+
+  int getInFlightLoads();
+
+  double getLoadLatencyP50Millis();
+
+  double getLoadLatencyP99Millis();
+
+  double getLoadLatencyP999Millis();
+
+  double getLoadLatencyMaxMillis();
+
+  List<String> getHotKeys();
+
+  void reset();
+}
@@ -0,0 +1,71 @@
+package org.proxy.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate per-key access counts for a bounded number of keys. When the table is full all
+ * counts are halved and the keys that drop to zero make room, so long-lived hot keys survive
+ * while one-off keys age out.
+ */
+public class HotKeyTracker {
+  private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+  private final ReentrantLock decayLock = new ReentrantLock();
+  private final int capacity;
+
+  public HotKeyTracker(int capacity) {
+    super();
+    this.capacity = capacity;
+  }
+
+  public void record(String key) {
+    LongAdder counter = counts.get(key);
+    if (counter == null) {
+      if (counts.size() >= capacity) {
+        decay();
+        if (counts.size() >= capacity) {
+          return;
+        }
+      }
+      counter = counts.computeIfAbsent(key, ignored -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  // The key's approximate count, 0 if it is not tracked.
+  public long count(String key) {
+    final LongAdder counter = counts.get(key);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public List<Map.Entry<String, Long>> top(int limit) {
+    final List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.size());
+    counts.forEach((key, counter) -> entries.add(Map.entry(key, counter.sum())));
+    entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+    return entries.size() > limit ? entries.subList(0, limit) : entries;
+  }
+
+  public void reset() {
+    counts.clear();
+  }
+
+  private void decay() {
+    if (!decayLock.tryLock()) {
+      return;
+    }
+    try {
+      counts.entrySet().removeIf(entry -> {
+        final long halved = entry.getValue().sumThenReset() / 2;
+        entry.getValue().add(halved);
+        return halved == 0;
+      });
+    } finally {
+      decayLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package org.proxy.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram in the style of HdrHistogram: every power of two is split into
+ * 32 linear sub-buckets, so any recorded value is reported within about 3% of its true value.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * (SUB_BUCKETS / 2);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalValue = new LongAdder();
+  private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+  public void record(long value) {
+    final long clamped = Math.max(0, value);
+    counts.incrementAndGet(bucketOf(clamped));
+    totalCount.increment();
+    totalValue.add(clamped);
+    maxValue.accumulate(clamped);
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  public double getMean() {
+    final long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalValue.sum() / count;
+  }
+
+  // The upper bound of the bucket holding the given percentile (0-100), capped at the max.
+  public long getValueAtPercentile(double percentile) {
+    final long count = totalCount.sum();
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(bucket), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+    totalCount.reset();
+    totalValue.reset();
+    maxValue.reset();
+  }
+
+  // For nanosecond histograms: "p50=1.2ms p99=8.0ms p99.9=9.1ms max=9.3ms (n=1000)".
+  public String summary() {
+    return String.format("p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms (n=%d)",
+        toMillis(getValueAtPercentile(50)), toMillis(getValueAtPercentile(99)),
+        toMillis(getValueAtPercentile(99.9)), toMillis(getMax()), getCount());
+  }
+
+  static double toMillis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    final int shift = magnitude - SUB_BUCKET_BITS + 1;
+    final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS / 2 - 1);
+    return (shift + 1) * (SUB_BUCKETS / 2) + subBucket;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = bucket / (SUB_BUCKETS / 2) - 1;
+    final long subBucket = bucket % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
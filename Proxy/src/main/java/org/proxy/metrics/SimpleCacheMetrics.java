@@ -0,0 +1,168 @@
+package org.proxy.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * In-memory counters and a load-latency histogram, readable directly or over JMX once
+ * {@link #register(String)} has been called.
+ */
+public class SimpleCacheMetrics implements CacheMetrics, CacheStatsMXBean {
+  private static final int HOT_KEYS_TRACKED = 1024;
+  private static final int HOT_KEYS_REPORTED = 10;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final AtomicInteger inFlightLoads = new AtomicInteger();
+  private final LatencyHistogram loadLatency = new LatencyHistogram();
+  private final HotKeyTracker hotKeys = new HotKeyTracker(HOT_KEYS_TRACKED);
+
+  @Override
+  public void recordHit(String key) {
+    hits.increment();
+    hotKeys.record(key);
+  }
+
+  @Override
+  public void recordMiss(String key) {
+    misses.increment();
+    hotKeys.record(key);
+  }
+
+  @Override
+  public void recordLoadSuccess(long nanos) {
+    loadLatency.record(nanos);
+  }
+
+  @Override
+  public void recordLoadFailure(long nanos) {
+    loadFailures.increment();
+    loadLatency.record(nanos);
+  }
+
+  @Override
+  public void recordEviction(String key) {
+    evictions.increment();
+  }
+
+  @Override
+  public void loadStarted() {
+    inFlightLoads.incrementAndGet();
+  }
+
+  @Override
+  public void loadFinished() {
+    inFlightLoads.decrementAndGet();
+  }
+
+  // Exposes these metrics as org.proxy:type=CacheStats,name=<name> on the platform MBean server.
+  public ObjectName register(String name) {
+    try {
+      final ObjectName named = new ObjectName("org.proxy:type=CacheStats,name=" + ObjectName.quote(name));
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(named)) {
+        server.unregisterMBean(named);
+      }
+      server.registerMBean(this, named);
+      return named;
+    } catch (JMException ex) {
+      throw new IllegalStateException("Cannot register cache metrics '" + name + "' with JMX", ex);
+    }
+  }
+
+  public LatencyHistogram getLoadLatency() {
+    return loadLatency;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    final long hitCount = hits.sum();
+    final long total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  @Override
+  public long getLoadSuccessCount() {
+    return loadLatency.getCount() - loadFailures.sum();
+  }
+
+  @Override
+  public long getLoadFailureCount() {
+    return loadFailures.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public int getInFlightLoads() {
+    return inFlightLoads.get();
+  }
+
+  @Override
+  public double getLoadLatencyP50Millis() {
+    return LatencyHistogram.toMillis(loadLatency.getValueAtPercentile(50));
+  }
+
+  @Override
+  public double getLoadLatencyP99Millis() {
+    return LatencyHistogram.toMillis(loadLatency.getValueAtPercentile(99));
+  }
+
+  @Override
+  public double getLoadLatencyP999Millis() {
+    return LatencyHistogram.toMillis(loadLatency.getValueAtPercentile(99.9));
+  }
+
+  @Override
+  public double getLoadLatencyMaxMillis() {
+    return LatencyHistogram.toMillis(loadLatency.getMax());
+  }
+
+  @Override
+  public List<String> getHotKeys() {
+    final List<String> result = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : hotKeys.top(HOT_KEYS_REPORTED)) {
+      result.add(entry.getKey() + "=" + entry.getValue());
+    }
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    hits.reset();
+    misses.reset();
+    loadFailures.reset();
+    evictions.reset();
+    loadLatency.reset();
+    hotKeys.reset();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("hits=%d misses=%d hitRatio=%.1f%% loadFailures=%d evictions=%d inFlight=%d load[%s]",
+        getHitCount(), getMissCount(), getHitRatio() * 100, getLoadFailureCount(), getEvictionCount(),
+        getInFlightLoads(), loadLatency.summary());
+  }
+}
@@ -0,0 +1,119 @@
+package org.proxy.prefetch;
+
+import org.proxy.downloader.VirtualThreads;
+import org.proxy.metrics.HotKeyTracker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads keys in the background ahead of demand. At most {@code maxConcurrentLoads} loads run at
+ * once, a key that is already queued or loading is not queued again, and failures are only
+ * logged since nobody is waiting for the result. The top keys of a list are the ones accessed
+ * most often, as reported through {@link #recordAccess(String)}.
+ */
+public class PrefetchEngine implements AutoCloseable {
+  private static final Logger LOGGER = Logger.getLogger(PrefetchEngine.class.getName());
+  private static final int ACCESS_KEYS_TRACKED = 10_000;
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int topN;
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+  private final HotKeyTracker accessCounts = new HotKeyTracker(ACCESS_KEYS_TRACKED);
+
+  // Without virtual threads the pool itself is capped, so queued loads wait without a thread each.
+  public PrefetchEngine(int maxConcurrentLoads, int topN) {
+    this(VirtualThreads.newBoundedExecutor(maxConcurrentLoads), maxConcurrentLoads, topN);
+  }
+
+  public PrefetchEngine(ExecutorService executor, int maxConcurrentLoads, int topN) {
+    super();
+    this.executor = executor;
+    this.permits = new Semaphore(maxConcurrentLoads);
+    this.topN = topN;
+  }
+
+  public void recordAccess(String key) {
+    accessCounts.record(key);
+  }
+
+  // Queues those of the topN most accessed keys that are not cached yet; keys accessed equally
+  // often keep their order in the collection.
+  public void prefetchTop(Collection<String> keys, Predicate<String> cached, Consumer<String> loader) {
+    // Counts are read once up front, since concurrent accesses must not change them mid-sort.
+    final List<Map.Entry<String, Long>> counted = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      counted.add(Map.entry(key, accessCounts.count(key)));
+    }
+    counted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+    final List<String> ranked = new ArrayList<>(counted.size());
+    for (Map.Entry<String, Long> entry : counted) {
+      ranked.add(entry.getKey());
+    }
+    prefetch(ranked, topN, cached, loader);
+  }
+
+  public void prefetchAll(Collection<String> keys, Predicate<String> cached, Consumer<String> loader) {
+    prefetch(keys, Integer.MAX_VALUE, cached, loader);
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private void prefetch(Collection<String> keys, int limit, Predicate<String> cached, Consumer<String> loader) {
+    int queued = 0;
+    for (String key : keys) {
+      if (queued >= limit) {
+        break;
+      }
+      queued++;
+      if (cached.test(key) || !pending.add(key)) {
+        continue;
+      }
+      try {
+        executor.execute(() -> load(key, cached, loader));
+      } catch (RejectedExecutionException ex) {
+        pending.remove(key);
+        return;
+      }
+    }
+  }
+
+  private void load(String key, Predicate<String> cached, Consumer<String> loader) {
+    try {
+      permits.acquire();
+      try {
+        if (!cached.test(key)) {
+          loader.accept(key);
+        }
+      } finally {
+        permits.release();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException ex) {
+      LOGGER.log(Level.FINE, "Prefetch of " + key + " failed", ex);
+    } finally {
+      pending.remove(key);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.proxy.proxy;
+
+import org.proxy.caching.Cacheable;
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.lib.Video;
+
+import java.util.Map;
+
+// Caching rules for ThirdPartyYouTubeLib, kept on the proxy side so the library does not depend
+// on the caching package: pass it to CachingProxyFactory.create as the annotated interface.
+public interface CachedYouTubeLib extends ThirdPartyYouTubeLib {
+  @Override
+  @Cacheable(cache = "popular")
+  Map<String, Video> popularVideos();
+
+  @Override
+  @Cacheable(cache = "videos", key = "#0")
+  Video getVideo(String videoId);
+}
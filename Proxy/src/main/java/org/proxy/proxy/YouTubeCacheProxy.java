@@ -1,59 +1,428 @@
 package org.proxy.proxy;
 
+import org.proxy.cache.ChunkCache;
+import org.proxy.cache.DiskVideoStore;
+import org.proxy.cache.HeapVideoCache;
+import org.proxy.cache.NegativeCache;
+import org.proxy.cache.VideoCache;
+import org.proxy.cluster.CacheEvent;
+import org.proxy.cluster.CacheEventBus;
 import org.proxy.lib.ThirdPartyYouTubeClass;
 import org.proxy.lib.ThirdPartyYouTubeLib;
 import org.proxy.lib.Video;
+import org.proxy.metrics.CacheMetrics;
+import org.proxy.prefetch.PrefetchEngine;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 public class YouTubeCacheProxy implements ThirdPartyYouTubeLib {
-  private ThirdPartyYouTubeLib youtubeService;
-  private HashMap<String, Video> cachePopular = null;
-  private final HashMap<String, Video> cacheAll = new HashMap<>();
+  // Per-request hits and misses are logged at FINE, lifecycle events at INFO.
+  private static final Logger LOGGER = Logger.getLogger(YouTubeCacheProxy.class.getName());
+  private static final String POPULAR_KEY = "<popular>";
+
+  // Safe to share between the concurrent page renders of YouTubeDownloader.renderPage().
+  private volatile ThirdPartyYouTubeLib youtubeService;
+  // Published once per load as an unmodifiable snapshot, so reads need neither a lock nor a copy.
+  private volatile Map<String, Video> cachePopular = null;
+  private final VideoCache cacheAll;
+  // Chunks of payloads streamed with readVideoRange(), for videos not cached as a whole.
+  private final ChunkCache chunkCache;
+  // Optional second-level cache that survives restarts.
+  private final DiskVideoStore secondLevel;
+  private final CacheMetrics metrics;
+  // IDs the upstream did not know, so bots scanning for them do not reach it again.
+  private final NegativeCache negativeCache;
+  // Keeps the caches of several proxy instances coherent; null when running standalone.
+  private final CacheEventBus eventBus;
+  private final boolean shareLoadedEntries;
+  private final String nodeId = UUID.randomUUID().toString();
+  // Preloads the top of each freshly loaded popular list; null disables prefetching.
+  private final PrefetchEngine prefetchEngine;
+  // One upstream load per video ID at a time, shared by user requests and prefetches.
+  private final Map<String, CompletableFuture<Video>> inFlight = new ConcurrentHashMap<>();
 
   public YouTubeCacheProxy() {
+    this(builder());
+  }
+
+  private YouTubeCacheProxy(Builder builder) {
     super();
     // Here, we initialize the proxy but not the real service yet.
+    this.youtubeService = builder.service;
+    this.cacheAll = builder.cache != null ? builder.cache : new HeapVideoCache();
+    this.secondLevel = builder.secondLevel;
+    this.chunkCache = builder.chunkCache != null ? builder.chunkCache
+        : new ChunkCache(64 * 1024, 64L * 1024 * 1024);
+    this.metrics = builder.metrics != null ? builder.metrics : CacheMetrics.NOOP;
+    this.negativeCache = builder.negativeCache != null ? builder.negativeCache
+        : new NegativeCache(Duration.ofSeconds(30), 10_000);
+    this.eventBus = builder.eventBus;
+    this.shareLoadedEntries = builder.shareLoadedEntries;
+    this.prefetchEngine = builder.prefetchEngine;
+    warmUpFromSecondLevel();
+    if (eventBus != null) {
+      eventBus.subscribe(this::onCacheEvent);
+    }
+    if (prefetchEngine != null && !builder.warmUpIds.isEmpty()) {
+      LOGGER.info(() -> "Proxy: Warming up " + builder.warmUpIds.size() + " videos in the background.");
+      prefetchEngine.prefetchAll(builder.warmUpIds, this::isCached, this::fetchVideo);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
   }
 
   // Lazy initialization for the real service
   private ThirdPartyYouTubeLib getService() {
     if (youtubeService == null) {
-      System.out.println("Proxy: Initializing real YouTube service object...");
-      youtubeService = new ThirdPartyYouTubeClass();
+      synchronized (this) {
+        if (youtubeService == null) {
+          LOGGER.info("Proxy: Initializing real YouTube service object...");
+          youtubeService = new ThirdPartyYouTubeClass();
+        }
+      }
     }
     return youtubeService;
   }
 
+  private void warmUpFromSecondLevel() {
+    if (secondLevel == null) {
+      return;
+    }
+    secondLevel.forEach(cacheAll::put);
+    final Map<String, Video> popular = secondLevel.getPopular();
+    if (popular != null) {
+      cachePopular = snapshot(popular);
+    }
+    LOGGER.info(() -> "Proxy: Warmed up " + cacheAll.size() + " videos"
+        + (popular != null ? " and the popular list" : "") + " from the second-level cache.");
+  }
+
   @Override
-  public HashMap<String, Video> popularVideos() {
-    System.out.println("Proxy: Attempting to get popular videos...");
-    if (cachePopular == null) {
-      System.out.println("Proxy: Cache miss for popular videos. Fetching from real service...");
-      cachePopular = getService().popularVideos();
+  public Map<String, Video> popularVideos() {
+    LOGGER.fine("Proxy: Attempting to get popular videos...");
+    Map<String, Video> popular = cachePopular;
+    if (popular == null) {
+      LOGGER.fine("Proxy: Cache miss for popular videos. Fetching from real service...");
+      metrics.recordMiss(POPULAR_KEY);
+      final Map<String, Video> fetched = load(() -> getService().popularVideos());
+      if (fetched == null) {
+        return null;
+      }
+      popular = snapshot(fetched);
+      cachePopular = popular;
+      if (secondLevel != null) {
+        secondLevel.putPopular(popular);
+      }
+      if (shareLoadedEntries) {
+        eventBus.publish(CacheEvent.popularLoaded(nodeId, popular));
+      }
+      if (prefetchEngine != null) {
+        prefetchEngine.prefetchTop(new ArrayList<>(fetched.keySet()), this::isCached, this::fetchVideo);
+      }
     } else {
-      System.out.println("Proxy: Retrieved popular videos list from cache.");
+      LOGGER.fine("Proxy: Retrieved popular videos list from cache.");
+      metrics.recordHit(POPULAR_KEY);
     }
-    return new HashMap<>(cachePopular);
+    return popular;
+  }
+
+  private static Map<String, Video> snapshot(Map<String, Video> popular) {
+    return Collections.unmodifiableMap(new HashMap<>(popular));
   }
 
   @Override
   public Video getVideo(String videoId) {
-    System.out.println("\nProxy: Attempting to get video details for ID: " + videoId);
+    LOGGER.fine(() -> "Proxy: Attempting to get video details for ID: " + videoId);
+    if (prefetchEngine != null) {
+      prefetchEngine.recordAccess(videoId);
+    }
     Video video = cacheAll.get(videoId);
-    if (video == null) {
-      System.out.println("Proxy: Cache miss for video ID: " + videoId + ". Fetching from real service...");
-      video = getService().getVideo(videoId);
-      cacheAll.put(videoId, video);
-    } else {
-      System.out.println("Proxy: Retrieved video details for ID: " + videoId + " from cache.");
+    if (video != null) {
+      LOGGER.fine(() -> "Proxy: Retrieved video details for ID: " + videoId + " from cache.");
+      metrics.recordHit(videoId);
+      return video;
+    }
+    if (negativeCache.isKnownMissing(videoId)) {
+      LOGGER.fine(() -> "Proxy: Video ID: " + videoId + " is known not to exist.");
+      metrics.recordHit(videoId);
+      return null;
+    }
+    if (secondLevel != null) {
+      video = secondLevel.get(videoId);
+      if (video != null) {
+        LOGGER.fine(() -> "Proxy: Retrieved video details for ID: " + videoId + " from second-level cache.");
+        metrics.recordHit(videoId);
+        cacheAll.put(videoId, video);
+        return video;
+      }
+    }
+
+    LOGGER.fine(() -> "Proxy: Cache miss for video ID: " + videoId + ". Fetching from real service...");
+    metrics.recordMiss(videoId);
+    return fetchVideo(videoId);
+  }
+
+  // Serves payload ranges from the whole cached video when there is one, otherwise chunk by
+  // chunk, fetching only the chunks that are not cached yet.
+  @Override
+  public ByteBuffer readVideoRange(String videoId, long offset, int length) {
+    if (cacheAll.get(videoId) != null) {
+      return ThirdPartyYouTubeLib.super.readVideoRange(videoId, offset, length);
+    }
+    if (negativeCache.isKnownMissing(videoId)) {
+      return null;
+    }
+    final int chunkSize = chunkCache.getChunkSize();
+    final ByteBuffer result = ByteBuffer.allocate(length);
+    long position = offset;
+    while (result.hasRemaining()) {
+      final long index = position / chunkSize;
+      ByteBuffer chunk = chunkCache.get(videoId, index);
+      if (chunk != null) {
+        metrics.recordHit(videoId);
+      } else {
+        LOGGER.fine(() -> "Proxy: Cache miss for chunk " + index + " of video ID: " + videoId + ".");
+        metrics.recordMiss(videoId);
+        chunk = load(() -> getService().readVideoRange(videoId, index * chunkSize, chunkSize));
+        if (chunk == null) {
+          negativeCache.markMissing(videoId);
+          return null;
+        }
+        chunkCache.put(videoId, index, chunk);
+      }
+      final int chunkLength = chunk.remaining();
+      final int skip = (int) (position - index * chunkSize);
+      if (skip >= chunkLength) {
+        break;
+      }
+      final int count = Math.min(chunkLength - skip, result.remaining());
+      chunk.position(chunk.position() + skip);
+      chunk.limit(chunk.position() + count);
+      result.put(chunk);
+      position += count;
+      if (chunkLength < chunkSize && skip + count == chunkLength) {
+        // A short chunk is the last one; do not ask for the next.
+        break;
+      }
+    }
+    return result.flip();
+  }
+
+  private boolean isCached(String videoId) {
+    return cacheAll.get(videoId) != null || negativeCache.isKnownMissing(videoId);
+  }
+
+  // Loads a video from the real service into the caches, joining a load already in progress.
+  private Video fetchVideo(String videoId) {
+    final CompletableFuture<Video> ours = new CompletableFuture<>();
+    final CompletableFuture<Video> running = inFlight.putIfAbsent(videoId, ours);
+    if (running != null) {
+      LOGGER.fine(() -> "Proxy: Joining the load already in progress for video ID: " + videoId);
+      try {
+        return running.join();
+      } catch (CompletionException ex) {
+        throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+      }
+    }
+    try {
+      final Video video = load(() -> getService().getVideo(videoId));
+      if (video == null) {
+        negativeCache.markMissing(videoId);
+      } else {
+        cacheAll.put(videoId, video);
+        if (secondLevel != null) {
+          secondLevel.put(videoId, video);
+        }
+        if (shareLoadedEntries) {
+          eventBus.publish(CacheEvent.loaded(nodeId, videoId, video));
+        }
+      }
+      ours.complete(video);
+      return video;
+    } catch (RuntimeException ex) {
+      ours.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(videoId, ours);
+    }
+  }
+
+  private <T> T load(Supplier<T> loader) {
+    metrics.loadStarted();
+    final long start = System.nanoTime();
+    boolean loaded = false;
+    try {
+      final T value = loader.get();
+      loaded = true;
+      return value;
+    } finally {
+      final long elapsed = System.nanoTime() - start;
+      if (loaded) {
+        metrics.recordLoadSuccess(elapsed);
+      } else {
+        metrics.recordLoadFailure(elapsed);
+      }
+      metrics.loadFinished();
+    }
+  }
+
+  // Drops one video from this proxy and from every proxy on the event bus.
+  public void invalidate(String videoId) {
+    evict(videoId);
+    if (eventBus != null) {
+      eventBus.publish(CacheEvent.invalidate(nodeId, videoId));
+    }
+  }
+
+  public void invalidatePopular() {
+    cachePopular = null;
+    if (eventBus != null) {
+      eventBus.publish(CacheEvent.invalidatePopular(nodeId));
     }
-    return video;
   }
 
   public void resetCache() {
-    System.out.println("\nProxy: Resetting cache.");
+    clearLocally();
+    if (eventBus != null) {
+      eventBus.publish(CacheEvent.clear(nodeId));
+    }
+  }
+
+  private void onCacheEvent(CacheEvent event) {
+    if (nodeId.equals(event.origin)) {
+      return;
+    }
+    LOGGER.fine(() -> "Proxy: Received " + event);
+    switch (event.type) {
+      case INVALIDATE:
+        evict(event.key);
+        break;
+      case INVALIDATE_POPULAR:
+        cachePopular = null;
+        break;
+      case CLEAR:
+        clearLocally();
+        break;
+      case LOADED:
+        negativeCache.remove(event.key);
+        cacheAll.put(event.key, event.video);
+        break;
+      case POPULAR_LOADED:
+        cachePopular = snapshot(event.popular);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void evict(String videoId) {
+    cacheAll.remove(videoId);
+    chunkCache.removeVideo(videoId);
+    negativeCache.remove(videoId);
+    if (secondLevel != null) {
+      secondLevel.remove(videoId);
+    }
+  }
+
+  private void clearLocally() {
+    LOGGER.info("Proxy: Resetting cache.");
     cachePopular = null;
     cacheAll.clear();
+    chunkCache.clear();
+    negativeCache.clear();
+    if (secondLevel != null) {
+      secondLevel.clear();
+    }
+  }
+
+  public static final class Builder {
+    private ThirdPartyYouTubeLib service;
+    private DiskVideoStore secondLevel;
+    private ChunkCache chunkCache;
+    private VideoCache cache;
+    private CacheMetrics metrics;
+    private NegativeCache negativeCache;
+    private CacheEventBus eventBus;
+    private boolean shareLoadedEntries;
+    private PrefetchEngine prefetchEngine;
+    private final List<String> warmUpIds = new ArrayList<>();
+
+    private Builder() {
+      super();
+    }
+
+    // The real service to delegate to; created lazily on the first miss when not set.
+    public Builder service(ThirdPartyYouTubeLib service) {
+      this.service = service;
+      return this;
+    }
+
+    // Storage for individual videos, e.g. OffHeapVideoCache for large catalogs; on-heap by default.
+    public Builder cache(VideoCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    // Defaults to 64 KiB chunks within a 64 MiB budget.
+    public Builder chunkCache(ChunkCache chunkCache) {
+      this.chunkCache = chunkCache;
+      return this;
+    }
+
+    public Builder secondLevel(DiskVideoStore secondLevel) {
+      this.secondLevel = secondLevel;
+      return this;
+    }
+
+    // Receives hit/miss/load events, e.g. a SimpleCacheMetrics registered with JMX.
+    public Builder metrics(CacheMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    // Defaults to a 30 second TTL sized for 10k unknown IDs.
+    public Builder negativeCache(NegativeCache negativeCache) {
+      this.negativeCache = negativeCache;
+      return this;
+    }
+
+    // Broadcasts invalidations to the other proxies on the bus; with shareLoadedEntries the
+    // entries this proxy loads from the real service are pushed to them as well.
+    public Builder eventBus(CacheEventBus eventBus, boolean shareLoadedEntries) {
+      this.eventBus = eventBus;
+      this.shareLoadedEntries = eventBus != null && shareLoadedEntries;
+      return this;
+    }
+
+    // Preloads the top entries of every popular list the proxy fetches, through the engine.
+    public Builder prefetch(PrefetchEngine prefetchEngine) {
+      this.prefetchEngine = prefetchEngine;
+      return this;
+    }
+
+    // Video IDs to load in the background as soon as the proxy is built (needs prefetch()).
+    public Builder warmUp(Collection<String> videoIds) {
+      this.warmUpIds.addAll(videoIds);
+      return this;
+    }
+
+    public YouTubeCacheProxy build() {
+      return new YouTubeCacheProxy(this);
+    }
   }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package org.proxy.resilience;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit tuned by AIMD: each call that succeeds within the target latency raises the
+ * limit by {@code 1 / limit} (about +1 per window of calls), each slow or failed call cuts it by
+ * 10%. The limit therefore settles just below the point where the upstream starts queueing.
+ */
+public class AdaptiveConcurrencyLimit {
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long targetLatencyNanos;
+  private double limit;
+  private int inFlight = 0;
+
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency) {
+    super();
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.targetLatencyNanos = targetLatency.toNanos();
+  }
+
+  public synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  public synchronized void release(long latencyNanos, boolean success) {
+    inFlight--;
+    if (success && latencyNanos <= targetLatencyNanos) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    } else {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+  }
+
+  // Returns a permit whose call never reached the upstream, leaving the limit unchanged.
+  public synchronized void release() {
+    inFlight--;
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+}
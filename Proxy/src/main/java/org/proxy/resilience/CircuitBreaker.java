@@ -0,0 +1,72 @@
+package org.proxy.resilience;
+
+import java.time.Duration;
+
+/**
+ * Opens after a number of consecutive failures and rejects calls until the open period has
+ * elapsed. It then lets a single trial call through (half-open): success closes the breaker,
+ * failure opens it again.
+ */
+public class CircuitBreaker {
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures = 0;
+  private long openedAt = 0;
+  private boolean trialInFlight = false;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    super();
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+  }
+
+  public synchronized boolean tryAcquirePermission() {
+    if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    trialInFlight = false;
+  }
+
+  public synchronized void onFailure() {
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.nanoTime();
+      trialInFlight = false;
+    }
+  }
+
+  // Gives back a permission whose call never reached the upstream, e.g. because it was throttled
+  // locally, so a half-open breaker can let another trial call through.
+  public synchronized void releasePermission() {
+    if (state == State.HALF_OPEN) {
+      trialInFlight = false;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
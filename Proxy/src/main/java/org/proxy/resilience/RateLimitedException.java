@@ -0,0 +1,12 @@
+package org.proxy.resilience;
+
+// Thrown when a call is refused locally (rate limit, concurrency limit or bulkhead) before it
+// reaches the upstream library; it says nothing about the upstream's health, so it is neither
+// retried nor counted by a circuit breaker.
+public class RateLimitedException extends UpstreamUnavailableException {
+  private static final long serialVersionUID = 1L;
+
+  public RateLimitedException(String message) {
+    super(message);
+  }
+}
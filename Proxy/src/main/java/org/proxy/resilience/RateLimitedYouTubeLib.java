@@ -0,0 +1,195 @@
+package org.proxy.resilience;
+
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.lib.Video;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Limits the rate of calls to the upstream library with a token bucket and, optionally, their
+ * concurrency with an {@link AdaptiveConcurrencyLimit}. A call that finds no token either waits
+ * for one up to a bound ({@link OverflowPolicy#QUEUE}) or fails at once
+ * ({@link OverflowPolicy#REJECT}) with a {@link RateLimitedException}.
+ */
+public class RateLimitedYouTubeLib implements ThirdPartyYouTubeLib, RateLimiterStatsMXBean {
+  public enum OverflowPolicy { QUEUE, REJECT }
+
+  private final ThirdPartyYouTubeLib delegate;
+  private final TokenBucket tokenBucket;
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+  private final OverflowPolicy overflowPolicy;
+  private final long maxQueueNanos;
+
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder rateLimited = new LongAdder();
+  private final LongAdder concurrencyRejected = new LongAdder();
+
+  private RateLimitedYouTubeLib(Builder builder) {
+    super();
+    this.delegate = builder.delegate;
+    this.tokenBucket = new TokenBucket(builder.permitsPerSecond, builder.burst);
+    this.concurrencyLimit = builder.concurrencyLimit;
+    this.overflowPolicy = builder.overflowPolicy;
+    this.maxQueueNanos = builder.maxQueueWait.toNanos();
+  }
+
+  public static Builder builder(ThirdPartyYouTubeLib delegate) {
+    return new Builder(delegate);
+  }
+
+  @Override
+  public Map<String, Video> popularVideos() {
+    return call(delegate::popularVideos);
+  }
+
+  @Override
+  public Video getVideo(String videoId) {
+    return call(() -> delegate.getVideo(videoId));
+  }
+
+  @Override
+  public long videoSize(String videoId) {
+    return call(() -> delegate.videoSize(videoId));
+  }
+
+  @Override
+  public ByteBuffer readVideoRange(String videoId, long offset, int length) {
+    return call(() -> delegate.readVideoRange(videoId, offset, length));
+  }
+
+  // Exposes the throttling counters as org.proxy:type=RateLimiter,name=<name> over JMX.
+  public ObjectName register(String name) {
+    try {
+      final ObjectName named = new ObjectName("org.proxy:type=RateLimiter,name=" + ObjectName.quote(name));
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(named)) {
+        server.unregisterMBean(named);
+      }
+      server.registerMBean(this, named);
+      return named;
+    } catch (JMException ex) {
+      throw new IllegalStateException("Cannot register rate limiter '" + name + "' with JMX", ex);
+    }
+  }
+
+  @Override
+  public long getAdmittedCount() {
+    return admitted.sum();
+  }
+
+  @Override
+  public long getQueuedCount() {
+    return queued.sum();
+  }
+
+  @Override
+  public long getRateLimitedCount() {
+    return rateLimited.sum();
+  }
+
+  @Override
+  public long getConcurrencyRejectedCount() {
+    return concurrencyRejected.sum();
+  }
+
+  @Override
+  public int getConcurrencyLimit() {
+    return concurrencyLimit != null ? concurrencyLimit.getLimit() : -1;
+  }
+
+  @Override
+  public int getInFlightCalls() {
+    return concurrencyLimit != null ? concurrencyLimit.getInFlight() : -1;
+  }
+
+  // Only the upstream call itself is timed and reported to the concurrency limit: a wait for a
+  // token or a local rate-limit rejection says nothing about the upstream's health.
+  private <T> T call(Supplier<T> upstreamCall) {
+    if (concurrencyLimit != null && !concurrencyLimit.tryAcquire()) {
+      concurrencyRejected.increment();
+      throw new RateLimitedException("Upstream concurrency limit reached");
+    }
+    try {
+      acquireToken();
+    } catch (RateLimitedException ex) {
+      if (concurrencyLimit != null) {
+        concurrencyLimit.release();
+      }
+      throw ex;
+    }
+    final long start = System.nanoTime();
+    boolean success = false;
+    try {
+      final T result = upstreamCall.get();
+      success = true;
+      return result;
+    } finally {
+      if (concurrencyLimit != null) {
+        concurrencyLimit.release(System.nanoTime() - start, success);
+      }
+    }
+  }
+
+  private void acquireToken() {
+    if (tokenBucket.tryAcquire()) {
+      admitted.increment();
+      return;
+    }
+    if (overflowPolicy == OverflowPolicy.QUEUE && tokenBucket.acquire(maxQueueNanos)) {
+      queued.increment();
+      admitted.increment();
+      return;
+    }
+    rateLimited.increment();
+    throw new RateLimitedException("Upstream rate limit exceeded");
+  }
+
+  public static final class Builder {
+    private final ThirdPartyYouTubeLib delegate;
+    private double permitsPerSecond = 50;
+    private int burst = 10;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.QUEUE;
+    private Duration maxQueueWait = Duration.ofSeconds(1);
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private Builder(ThirdPartyYouTubeLib delegate) {
+      super();
+      this.delegate = delegate;
+    }
+
+    public Builder rate(double permitsPerSecond, int burst) {
+      this.permitsPerSecond = permitsPerSecond;
+      this.burst = burst;
+      return this;
+    }
+
+    public Builder queue(Duration maxQueueWait) {
+      this.overflowPolicy = OverflowPolicy.QUEUE;
+      this.maxQueueWait = maxQueueWait;
+      return this;
+    }
+
+    public Builder reject() {
+      this.overflowPolicy = OverflowPolicy.REJECT;
+      return this;
+    }
+
+    public Builder adaptiveConcurrency(AdaptiveConcurrencyLimit concurrencyLimit) {
+      this.concurrencyLimit = concurrencyLimit;
+      return this;
+    }
+
+    public RateLimitedYouTubeLib build() {
+      return new RateLimitedYouTubeLib(this);
+    }
+  }
+}
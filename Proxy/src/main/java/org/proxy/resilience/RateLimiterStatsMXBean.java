@@ -0,0 +1,15 @@
+package org.proxy.resilience;
+
+public interface RateLimiterStatsMXBean {
+  long getAdmittedCount();
+
+  long getQueuedCount();
+
+  long getRateLimitedCount();
+
+  long getConcurrencyRejectedCount();
+
+  int getConcurrencyLimit();
+
+  int getInFlightCalls();
+}
@@ -0,0 +1,294 @@
+package org.proxy.resilience;
+
+import org.proxy.downloader.VirtualThreads;
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.lib.Video;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Decorates the upstream library with a per-call timeout, a bulkhead bounding concurrent calls,
+ * retries with exponential backoff and a circuit breaker. Only timeouts and I/O failures are
+ * retried and counted by the breaker; local rejections and library errors are passed on at once.
+ * The last good result of every call is remembered (up to a bound) and served, stale, while the
+ * breaker is open or when a call is unavailable.
+ */
+public class ResilientYouTubeLib implements ThirdPartyYouTubeLib {
+  private static final Logger LOGGER = Logger.getLogger(ResilientYouTubeLib.class.getName());
+  private static final String POPULAR_KEY = "<popular>";
+
+  private final ThirdPartyYouTubeLib delegate;
+  private final ExecutorService executor;
+  private final long timeoutNanos;
+  private final Semaphore bulkhead;
+  private final long bulkheadWaitNanos;
+  private final RetryPolicy retryPolicy;
+  private final CircuitBreaker circuitBreaker;
+  private final Map<String, Object> lastKnownGood;
+
+  private ResilientYouTubeLib(Builder builder) {
+    super();
+    this.delegate = builder.delegate;
+    this.executor = builder.executor != null ? builder.executor : VirtualThreads.newExecutor();
+    this.timeoutNanos = builder.timeout.toNanos();
+    this.bulkhead = new Semaphore(builder.maxConcurrentCalls);
+    this.bulkheadWaitNanos = builder.bulkheadWait.toNanos();
+    this.retryPolicy = builder.retryPolicy;
+    this.circuitBreaker = builder.circuitBreaker;
+    final int staleEntries = builder.staleEntries;
+    this.lastKnownGood = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+        return size() > staleEntries;
+      }
+    };
+  }
+
+  public static Builder builder(ThirdPartyYouTubeLib delegate) {
+    return new Builder(delegate);
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Video> popularVideos() {
+    return (Map<String, Video>) call(POPULAR_KEY, delegate::popularVideos);
+  }
+
+  @Override
+  public Video getVideo(String videoId) {
+    return (Video) call(videoId, () -> delegate.getVideo(videoId));
+  }
+
+  @Override
+  public long videoSize(String videoId) {
+    return (Long) call("size:" + videoId, () -> delegate.videoSize(videoId));
+  }
+
+  // Ranges go through the same policies, but are not kept for stale serving.
+  @Override
+  public ByteBuffer readVideoRange(String videoId, long offset, int length) {
+    return (ByteBuffer) call(null, () -> delegate.readVideoRange(videoId, offset, length));
+  }
+
+  private Object call(String key, Callable<?> upstreamCall) {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      return stale(key, new UpstreamUnavailableException("Circuit breaker is open"));
+    }
+    try {
+      final Object result = callWithRetries(upstreamCall);
+      circuitBreaker.onSuccess();
+      remember(key, result);
+      return result;
+    } catch (UpstreamUnavailableException ex) {
+      return stale(key, ex);
+    }
+  }
+
+  private Object callWithRetries(Callable<?> upstreamCall) {
+    UpstreamUnavailableException failure = null;
+    for (int attempt = 1; attempt <= retryPolicy.getMaxAttempts(); attempt++) {
+      if (attempt > 1 && !circuitBreaker.tryAcquirePermission()) {
+        break;
+      }
+      try {
+        if (attempt > 1) {
+          sleep(retryPolicy.backoffNanos(attempt - 1));
+        }
+        return callOnce(upstreamCall);
+      } catch (UpstreamFailure ex) {
+        circuitBreaker.onFailure();
+        failure = ex;
+        LOGGER.fine(() -> "Upstream call failed (" + ex.getMessage() + ")");
+      } catch (RuntimeException | Error ex) {
+        // Throttled locally, interrupted, or a deterministic error of the library: the upstream's
+        // health is unknown, so there is nothing to count or retry.
+        circuitBreaker.releasePermission();
+        throw ex;
+      }
+    }
+    throw failure != null ? failure : new UpstreamUnavailableException("Circuit breaker is open");
+  }
+
+  // The bulkhead permit is held until the upstream call itself returns, even after a timeout, as
+  // cancelling does not stop blocking I/O; whoever first claims the call (the task when it runs,
+  // or the caller cancelling it before it started) releases the permit.
+  private Object callOnce(Callable<?> upstreamCall) {
+    final boolean acquired;
+    try {
+      acquired = bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new UpstreamUnavailableException("Interrupted while waiting for the bulkhead", ex);
+    }
+    if (!acquired) {
+      throw new RateLimitedException("Bulkhead full");
+    }
+    final AtomicBoolean claimed = new AtomicBoolean();
+    final Future<?> future;
+    try {
+      future = executor.submit(() -> {
+        if (!claimed.compareAndSet(false, true)) {
+          return null;
+        }
+        try {
+          return upstreamCall.call();
+        } finally {
+          bulkhead.release();
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      bulkhead.release();
+      throw new RateLimitedException("Upstream executor rejected the call");
+    }
+    try {
+      return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      cancel(future, claimed);
+      throw new UpstreamFailure("Upstream call timed out", ex);
+    } catch (ExecutionException ex) {
+      throw failureOf(ex.getCause());
+    } catch (InterruptedException ex) {
+      cancel(future, claimed);
+      Thread.currentThread().interrupt();
+      throw new UpstreamUnavailableException("Interrupted while calling upstream", ex);
+    }
+  }
+
+  private void cancel(Future<?> future, AtomicBoolean claimed) {
+    future.cancel(true);
+    if (claimed.compareAndSet(false, true)) {
+      bulkhead.release();
+    }
+  }
+
+  // Only timeouts and I/O-type failures are upstream faults worth retrying; anything else the
+  // library throws is deterministic and is passed on unchanged.
+  private static RuntimeException failureOf(Throwable cause) {
+    if (cause instanceof RateLimitedException) {
+      return (RateLimitedException) cause;
+    }
+    if (cause instanceof IOException || cause instanceof UncheckedIOException
+        || cause instanceof TimeoutException || cause instanceof UpstreamUnavailableException) {
+      return new UpstreamFailure("Upstream call failed", cause);
+    }
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new UpstreamUnavailableException("Upstream call failed", cause);
+  }
+
+  private void remember(String key, Object result) {
+    if (key != null && result != null) {
+      synchronized (lastKnownGood) {
+        lastKnownGood.put(key, result);
+      }
+    }
+  }
+
+  private Object stale(String key, UpstreamUnavailableException failure) {
+    if (key == null) {
+      throw failure;
+    }
+    final Object stale;
+    synchronized (lastKnownGood) {
+      stale = lastKnownGood.get(key);
+    }
+    if (stale == null) {
+      throw failure;
+    }
+    LOGGER.info(() -> "Serving stale result for " + key + " (" + failure.getMessage() + ")");
+    return stale;
+  }
+
+  private static void sleep(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new UpstreamUnavailableException("Interrupted during retry backoff", ex);
+    }
+  }
+
+  // A timeout or I/O failure of the upstream: retried, and counted by the circuit breaker.
+  private static final class UpstreamFailure extends UpstreamUnavailableException {
+    private static final long serialVersionUID = 1L;
+
+    private UpstreamFailure(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  public static final class Builder {
+    private final ThirdPartyYouTubeLib delegate;
+    private ExecutorService executor;
+    private Duration timeout = Duration.ofSeconds(5);
+    private int maxConcurrentCalls = 64;
+    private Duration bulkheadWait = Duration.ZERO;
+    private RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(100), Duration.ofSeconds(2));
+    private CircuitBreaker circuitBreaker = new CircuitBreaker(5, Duration.ofSeconds(30));
+    private int staleEntries = 10_000;
+
+    private Builder(ThirdPartyYouTubeLib delegate) {
+      super();
+      this.delegate = delegate;
+    }
+
+    // Runs the (blocking) upstream calls; virtual threads when available by default.
+    public Builder executor(ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder timeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Builder bulkhead(int maxConcurrentCalls, Duration maxWait) {
+      this.maxConcurrentCalls = maxConcurrentCalls;
+      this.bulkheadWait = maxWait;
+      return this;
+    }
+
+    public Builder retryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    public Builder staleEntries(int staleEntries) {
+      this.staleEntries = staleEntries;
+      return this;
+    }
+
+    public ResilientYouTubeLib build() {
+      return new ResilientYouTubeLib(this);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package org.proxy.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the wait before retry {@code n} is a random duration
+ * between zero and {@code min(maxBackoff, initialBackoff * 2^(n-1))}.
+ */
+public class RetryPolicy {
+  private final int maxAttempts;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+
+  public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+    super();
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffNanos = initialBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+  }
+
+  public static RetryPolicy none() {
+    return new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long backoffNanos(int retry) {
+    final long ceiling = initialBackoffNanos << Math.min(retry - 1, 30);
+    final long bound = Math.min(maxBackoffNanos, ceiling < 0 ? Long.MAX_VALUE : ceiling);
+    return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+  }
+}
@@ -0,0 +1,60 @@
+package org.proxy.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled continuously at {@code permitsPerSecond}, holding at most {@code burst}
+ * tokens. Waiting callers reserve their token up front, so they are served in arrival order.
+ */
+public class TokenBucket {
+  private final double permitsPerNano;
+  private final double burst;
+  private double tokens;
+  private long lastRefill;
+
+  public TokenBucket(double permitsPerSecond, int burst) {
+    super();
+    this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.burst = burst;
+    this.tokens = burst;
+    this.lastRefill = System.nanoTime();
+  }
+
+  public boolean tryAcquire() {
+    return acquire(0);
+  }
+
+  // Waits up to maxWaitNanos for a token; returns false, without consuming one, if that is not enough.
+  public boolean acquire(long maxWaitNanos) {
+    final long waitNanos;
+    synchronized (this) {
+      refill();
+      if (tokens >= 1) {
+        tokens -= 1;
+        return true;
+      }
+      waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+      if (waitNanos > maxWaitNanos) {
+        return false;
+      }
+      // Go into debt; later callers see the reservation and wait correspondingly longer.
+      tokens -= 1;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+      return true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      synchronized (this) {
+        tokens += 1;
+      }
+      return false;
+    }
+  }
+
+  private void refill() {
+    final long now = System.nanoTime();
+    tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+    lastRefill = now;
+  }
+}
@@ -0,0 +1,14 @@
+package org.proxy.resilience;
+
+// Thrown when a call to the upstream library is refused or gives up and no stale copy is available.
+public class UpstreamUnavailableException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  public UpstreamUnavailableException(String message) {
+    super(message);
+  }
+
+  public UpstreamUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,64 @@
+package org.proxy.stream;
+
+import org.proxy.lib.ThirdPartyYouTubeLib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Streams a video payload from the library one range request at a time, so a reader gets the
+ * first bytes after a single chunk round trip and never holds more than one chunk in memory.
+ */
+public class VideoChannel implements ReadableByteChannel {
+  private final ThirdPartyYouTubeLib library;
+  private final String videoId;
+  private final int chunkSize;
+  private long position = 0;
+  private ByteBuffer chunk = ByteBuffer.allocate(0);
+  private boolean endOfStream = false;
+  private boolean open = true;
+
+  public VideoChannel(ThirdPartyYouTubeLib library, String videoId, int chunkSize) {
+    super();
+    this.library = library;
+    this.videoId = videoId;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public int read(ByteBuffer destination) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    if (!chunk.hasRemaining() && !endOfStream) {
+      final ByteBuffer next = library.readVideoRange(videoId, position, chunkSize);
+      if (next == null) {
+        throw new IOException("Video not found: " + videoId);
+      }
+      chunk = next;
+      position += next.remaining();
+      endOfStream = next.remaining() < chunkSize;
+    }
+    if (!chunk.hasRemaining()) {
+      return -1;
+    }
+    final int count = Math.min(chunk.remaining(), destination.remaining());
+    final ByteBuffer slice = chunk.slice();
+    slice.limit(count);
+    destination.put(slice);
+    chunk.position(chunk.position() + count);
+    return count;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+}
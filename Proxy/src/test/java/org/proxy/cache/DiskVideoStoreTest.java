@@ -0,0 +1,148 @@
+package org.proxy.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.proxy.lib.Video;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskVideoStoreTest {
+  @TempDir
+  Path directory;
+
+  @Test
+  void replaysPutsRemovesAndPopularListOnReopen() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      store.put("a", new Video("a", "First"));
+      store.put("b", new Video("b", "Second"));
+      store.put("a", new Video("a", "First again"));
+      store.remove("b");
+      store.putPopular(Map.of("p", new Video("p", "Popular")));
+    }
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      assertEquals(1, store.size());
+      assertEquals("First again", store.get("a").title);
+      assertNull(store.get("b"));
+      assertEquals("Popular", store.getPopular().get("p").title);
+    }
+  }
+
+  @Test
+  void dropsARecordTornAtTheEndAndKeepsAppending() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      store.put("a", new Video("a", "Kept"));
+    }
+    final long intact = Files.size(file);
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      store.put("b", new Video("b", "Torn by a crash"));
+    }
+    for (long cut = intact + 1; cut < Files.size(file); cut += 3) {
+      final Path torn = directory.resolve("torn-" + cut + ".log");
+      Files.copy(file, torn);
+      try (RandomAccessFile raw = new RandomAccessFile(torn.toFile(), "rw")) {
+        raw.setLength(cut);
+      }
+      try (DiskVideoStore store = new DiskVideoStore(torn)) {
+        assertEquals(1, store.size(), "cut at " + cut);
+        assertEquals("Kept", store.get("a").title);
+        store.put("c", new Video("c", "After recovery"));
+      }
+      assertEquals(intact, Files.size(torn) - sizeOfRecord("c", new Video("c", "After recovery")));
+      try (DiskVideoStore store = new DiskVideoStore(torn)) {
+        assertEquals("After recovery", store.get("c").title);
+      }
+    }
+  }
+
+  @Test
+  void refusesToOpenALogWithAnUnknownRecordInTheMiddle() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      store.put("a", new Video("a", "First"));
+      store.put("b", new Video("b", "Second"));
+    }
+    final long size = Files.size(file);
+    corruptByte(file, 0, 42);
+    assertThrows(IOException.class, () -> new DiskVideoStore(file).close());
+    assertEquals(size, Files.size(file));
+  }
+
+  @Test
+  void refusesToOpenALogWithANegativeLength() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      store.put("a", new Video("a", "First"));
+      store.put("b", new Video("b", "Second"));
+    }
+    // Type byte, then the key as a two-byte length and one character, then the video length.
+    corruptByte(file, 4, 0x80);
+    assertThrows(IOException.class, () -> new DiskVideoStore(file).close());
+  }
+
+  @Test
+  void compactsToTheLiveRecordsAndReopens() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      for (int i = 0; i < 100; i++) {
+        store.put("k" + (i % 5), new Video("k" + i, "Title " + i));
+      }
+      store.remove("k4");
+      store.putPopular(Map.of("p", new Video("p", "Old")));
+      store.putPopular(Map.of("p", new Video("p", "New")));
+      final long before = Files.size(file);
+      store.compact();
+      assertTrue(Files.size(file) < before / 10);
+      assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".compact")));
+      assertEquals(4, store.size());
+      assertEquals("Title 98", store.get("k3").title);
+      store.put("late", new Video("late", "Written after compaction"));
+    }
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      assertEquals(5, store.size());
+      assertNull(store.get("k4"));
+      assertEquals("Title 95", store.get("k0").title);
+      assertEquals("New", store.getPopular().get("p").title);
+      assertEquals("Written after compaction", store.get("late").title);
+    }
+  }
+
+  @Test
+  void compactsAutomaticallyOnceMostRecordsAreDead() throws IOException {
+    final Path file = directory.resolve("videos.log");
+    try (DiskVideoStore store = new DiskVideoStore(file)) {
+      for (int i = 0; i < 3000; i++) {
+        store.put("k" + (i % 10), new Video("k" + i, "Title " + i));
+      }
+      assertTrue(Files.size(file) < 2000 * sizeOfRecord("k0", new Video("k0", "Title 0")));
+      assertEquals("Title 2999", store.get("k9").title);
+    }
+  }
+
+  private long sizeOfRecord(String key, Video video) throws IOException {
+    final Path scratch = Files.createTempFile(directory, "record", ".log");
+    try (DiskVideoStore store = new DiskVideoStore(scratch)) {
+      store.put(key, video);
+    }
+    return Files.size(scratch);
+  }
+
+  private static void corruptByte(Path file, long position, int value) throws IOException {
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.seek(position);
+      raw.writeByte(value);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.proxy.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.proxy.codec.VideoCodec;
+import org.proxy.lib.Video;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapVideoCacheTest {
+  @Test
+  void keepsEveryEntryAcrossRehashes() {
+    final OffHeapVideoCache cache = new OffHeapVideoCache(new VideoCodec(), 64 * 1024);
+    for (int i = 0; i < 5000; i++) {
+      cache.put("key" + i, video(i));
+    }
+    assertEquals(5000, cache.size());
+    for (int i = 0; i < 5000; i += 2) {
+      cache.remove("key" + i);
+    }
+    assertEquals(2500, cache.size());
+    for (int i = 0; i < 5000; i++) {
+      final Video video = cache.get("key" + i);
+      if (i % 2 == 0) {
+        assertNull(video);
+      } else {
+        assertEquals("Title " + i, video.title);
+      }
+    }
+  }
+
+  @Test
+  void reinsertsOverTombstonesWithoutLosingCollidingKeys() {
+    // "Aa" and "BB" share a hash code, so "BB" is probed past the slot "Aa" leaves behind.
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    final OffHeapVideoCache cache = new OffHeapVideoCache();
+    cache.put("Aa", new Video("Aa", "First"));
+    cache.put("BB", new Video("BB", "Second"));
+    cache.remove("Aa");
+    assertNull(cache.get("Aa"));
+    assertEquals("Second", cache.get("BB").title);
+
+    cache.put("Aa", new Video("Aa", "Back"));
+    cache.put("BB", new Video("BB", "Replaced"));
+    assertEquals(2, cache.size());
+    assertEquals("Back", cache.get("Aa").title);
+    assertEquals("Replaced", cache.get("BB").title);
+
+    // Churn on one key keeps reusing tombstones rather than filling the index.
+    for (int i = 0; i < 10_000; i++) {
+      cache.remove("churn");
+      cache.put("churn", video(i));
+    }
+    assertEquals(3, cache.size());
+    assertEquals("Title 9999", cache.get("churn").title);
+  }
+
+  @Test
+  void returnsTheSameBytesAfterSlabCompaction() {
+    final OffHeapVideoCache cache = new OffHeapVideoCache(new VideoCodec(), 4096);
+    for (int round = 0; round < 50; round++) {
+      for (int i = 0; i < 20; i++) {
+        cache.put("key" + i, new Video("key" + i, "Title " + round + "/" + i, "ж".repeat(i * 10)));
+      }
+    }
+    // Fifty rounds would need dozens of slabs without compaction.
+    assertTrue(cache.offHeapBytes() < 10 * 4096 + 1024 * 16);
+    assertEquals(20, cache.size());
+    for (int i = 0; i < 20; i++) {
+      final Video video = cache.get("key" + i);
+      assertEquals("key" + i, video.id);
+      assertEquals("Title 49/" + i, video.title);
+      assertEquals("ж".repeat(i * 10), video.data);
+    }
+  }
+
+  private static Video video(int i) {
+    return new Video("key" + i, "Title " + i);
+  }
+}
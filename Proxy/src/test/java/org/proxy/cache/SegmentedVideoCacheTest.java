@@ -0,0 +1,110 @@
+package org.proxy.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.proxy.lib.Video;
+import org.proxy.metrics.CacheMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class SegmentedVideoCacheTest {
+  private final List<String> evicted = Collections.synchronizedList(new ArrayList<>());
+  private final CacheMetrics metrics = new CacheMetrics() {
+    @Override
+    public void recordEviction(String key) {
+      evicted.add(key);
+    }
+  };
+
+  @Test
+  void singleSegmentEvictsTheLeastRecentlyReadEntry() {
+    final SegmentedVideoCache cache = new SegmentedVideoCache(3, 1, metrics);
+    cache.put("a", video("a"));
+    cache.put("b", video("b"));
+    cache.put("c", video("c"));
+    assertNotNull(cache.get("a"));
+    cache.put("d", video("d"));
+
+    assertEquals(List.of("b"), evicted);
+    assertEquals(3, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals("a", cache.get("a").id);
+  }
+
+  @Test
+  void roundsTheSegmentCountUpToAPowerOfTwo() {
+    // Three segments become four, each holding one entry, so a fifth key must evict.
+    final SegmentedVideoCache cache = new SegmentedVideoCache(4, 3, metrics);
+    for (int i = 0; i < 1000; i++) {
+      cache.put("key" + i, video("key" + i));
+      assertTrue(cache.size() <= 4);
+    }
+    assertEquals(4, cache.size());
+    assertEquals(996, evicted.size());
+  }
+
+  @Test
+  void removeAndClearDropEntries() {
+    final SegmentedVideoCache cache = new SegmentedVideoCache(100);
+    cache.put("a", video("a"));
+    cache.put("b", video("b"));
+    cache.remove("a");
+    assertNull(cache.get("a"));
+    assertEquals(1, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    cache.put("a", video("a"));
+    assertEquals("a", cache.get("a").id);
+  }
+
+  @Test
+  void staysWithinCapacityUnderConcurrentReadsAndWrites() throws Exception {
+    final SegmentedVideoCache cache = new SegmentedVideoCache(64, 4, metrics);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < 20_000; i++) {
+            final String key = "key" + ((i * 7 + offset) % 200);
+            final Video video = cache.get(key);
+            if (video == null) {
+              cache.put(key, video(key));
+            } else {
+              assertEquals(key, video.id);
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.size() <= 64);
+    assertFalse(evicted.isEmpty());
+  }
+
+  private static Video video(String key) {
+    return new Video(key, "Title " + key);
+  }
+}
@@ -0,0 +1,117 @@
+package org.proxy.caching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CachingProxyFactoryTest {
+  public interface Service {
+    @Cacheable(cache = "shared")
+    String name(String key);
+
+    @Cacheable(cache = "shared")
+    Integer length(String key);
+
+    @Cacheable(ttlMillis = 20)
+    String fresh(String key);
+  }
+
+  public interface Plain {
+    String name(String key);
+  }
+
+  public interface CachedPlain extends Plain {
+    @Override
+    @Cacheable
+    String name(String key);
+  }
+
+  private static final class Counting implements Service, Plain {
+    private final String prefix;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Counting(String prefix) {
+      super();
+      this.prefix = prefix;
+    }
+
+    @Override
+    public String name(String key) {
+      calls.incrementAndGet();
+      return prefix + key;
+    }
+
+    @Override
+    public Integer length(String key) {
+      calls.incrementAndGet();
+      return key.length();
+    }
+
+    @Override
+    public String fresh(String key) {
+      return prefix + key + calls.incrementAndGet();
+    }
+  }
+
+  private final CachingProxyFactory factory = new CachingProxyFactory();
+
+  @Test
+  void proxiesForDifferentTargetsDoNotShareEntries() {
+    final Service first = factory.create(Service.class, new Counting("a-"));
+    final Service second = factory.create(Service.class, new Counting("b-"));
+    assertEquals("a-x", first.name("x"));
+    assertEquals("b-x", second.name("x"));
+  }
+
+  @Test
+  void methodsSharingACacheNameKeepTheirOwnEntries() {
+    final Counting target = new Counting("");
+    final Service proxy = factory.create(Service.class, target);
+    assertEquals("abc", proxy.name("abc"));
+    assertEquals(3, proxy.length("abc"));
+    assertEquals("abc", proxy.name("abc"));
+    assertEquals(2, target.calls.get());
+    assertEquals(2, CachingProxyFactory.size(proxy, "shared"));
+    CachingProxyFactory.clear(proxy, "shared");
+    assertEquals(0, CachingProxyFactory.size(proxy, "shared"));
+  }
+
+  @Test
+  void boundsEveryCache() {
+    final Counting target = new Counting("");
+    final Service proxy = new CachingProxyFactory(3).create(Service.class, target);
+    for (int i = 0; i < 10; i++) {
+      proxy.name("k" + i);
+    }
+    assertEquals(3, CachingProxyFactory.size(proxy, "shared"));
+    // The most recent keys are kept.
+    proxy.name("k9");
+    assertEquals(10, target.calls.get());
+  }
+
+  @Test
+  void expiresAndEvictsEntriesPastTheirTimeToLive() throws InterruptedException {
+    final Service proxy = factory.create(Service.class, new Counting(""));
+    final String first = proxy.fresh("x");
+    assertEquals(first, proxy.fresh("x"));
+    for (int i = 0; i < 5; i++) {
+      proxy.fresh("key" + i);
+    }
+    Thread.sleep(40);
+    proxy.fresh("y");
+    assertEquals(1, CachingProxyFactory.size(proxy, "fresh"));
+    assertNotEquals(first, proxy.fresh("x"));
+  }
+
+  @Test
+  void readsAnnotationsFromASeparateInterface() {
+    final Counting target = new Counting("");
+    final Plain proxy = factory.create(Plain.class, CachedPlain.class, target);
+    proxy.name("x");
+    proxy.name("x");
+    assertEquals(1, target.calls.get());
+  }
+}
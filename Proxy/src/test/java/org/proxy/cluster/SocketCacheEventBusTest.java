@@ -0,0 +1,79 @@
+package org.proxy.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.proxy.lib.Video;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class SocketCacheEventBusTest {
+  @Test
+  void deliversEventsPublishedBackToBackFromOneThread() throws Exception {
+    final int senderPort = freePort();
+    final int receiverPort = freePort();
+    final BlockingQueue<CacheEvent> received = new LinkedBlockingQueue<>();
+    try (SocketCacheEventBus receiver = new SocketCacheEventBus(receiverPort, List.of());
+        SocketCacheEventBus sender = new SocketCacheEventBus(senderPort, List.of(receiverPort))) {
+      receiver.subscribe(received::add);
+      sender.publish(CacheEvent.loaded("a", "first", new Video("first", "A much longer first title")));
+      sender.publish(CacheEvent.invalidate("a", "second"));
+      sender.publish(CacheEvent.loaded("a", "huge", new Video("huge", "Huge", "x".repeat(100_000))));
+
+      final CacheEvent first = received.poll(5, TimeUnit.SECONDS);
+      assertNotNull(first);
+      assertEquals(CacheEvent.Type.LOADED, first.type);
+      assertEquals("A much longer first title", first.video.title);
+      final CacheEvent second = received.poll(5, TimeUnit.SECONDS);
+      assertNotNull(second);
+      assertEquals(CacheEvent.Type.INVALIDATE, second.type);
+      assertEquals("second", second.key);
+      // Too large for one datagram, so it arrives as an invalidation.
+      final CacheEvent third = received.poll(5, TimeUnit.SECONDS);
+      assertNotNull(third);
+      assertEquals(CacheEvent.Type.INVALIDATE, third.type);
+      assertEquals("huge", third.key);
+      assertNull(third.video);
+    }
+  }
+
+  @Test
+  void listenersMayPublishFromInsidePublish() throws Exception {
+    final int senderPort = freePort();
+    final int receiverPort = freePort();
+    final BlockingQueue<CacheEvent> received = new LinkedBlockingQueue<>();
+    try (SocketCacheEventBus receiver = new SocketCacheEventBus(receiverPort, List.of());
+        SocketCacheEventBus sender = new SocketCacheEventBus(senderPort, List.of(receiverPort))) {
+      receiver.subscribe(received::add);
+      sender.subscribe(event -> {
+        if (event.type == CacheEvent.Type.LOADED) {
+          sender.publish(CacheEvent.invalidatePopular("a"));
+        }
+      });
+      sender.publish(CacheEvent.loaded("a", "key", new Video("key", "Title")));
+
+      final CacheEvent nested = received.poll(5, TimeUnit.SECONDS);
+      assertNotNull(nested);
+      assertEquals(CacheEvent.Type.INVALIDATE_POPULAR, nested.type);
+      final CacheEvent outer = received.poll(5, TimeUnit.SECONDS);
+      assertNotNull(outer);
+      assertEquals(CacheEvent.Type.LOADED, outer.type);
+      assertEquals("Title", outer.video.title);
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package org.proxy.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.proxy.lib.Video;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class VideoCodecTest {
+  private static final List<Video> VIDEOS = Arrays.asList(
+      new Video("catzzzzzzzzz", "Catzzzz.avi"),
+      new Video("ж-видео", "Ünïcödé — 标题 🎬", "données ✓"),
+      new Video("", "", ""),
+      new Video(null, null, null),
+      new Video("id", null, "data"),
+      new Video("surrogate", "broken \uD800 pair", "x"),
+      new Video("long", "t".repeat(300), "d".repeat(20_000)));
+
+  private final VideoCodec codec = new VideoCodec();
+
+  @Test
+  void roundTripsThroughByteArrays() {
+    for (Video video : VIDEOS) {
+      final byte[] bytes = codec.encode(video);
+      assertEquals(codec.encodedSize(video), bytes.length);
+      assertVideoEquals(video, codec.decode(bytes));
+    }
+  }
+
+  @Test
+  void roundTripsThroughHeapBuffers() {
+    final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    roundTripAll(buffer);
+  }
+
+  @Test
+  void roundTripsThroughDirectBuffers() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    roundTripAll(buffer);
+  }
+
+  @Test
+  void decodesHeapBufferSlicesWithAnArrayOffset() {
+    final Video video = VIDEOS.get(1);
+    final ByteBuffer buffer = ByteBuffer.allocate(16 + codec.encodedSize(video));
+    buffer.position(16);
+    final ByteBuffer slice = buffer.slice();
+    codec.encode(video, slice);
+    slice.flip();
+    assertVideoEquals(video, codec.decode(slice));
+  }
+
+  @Test
+  void encodesMultiByteTextAsUtf8() {
+    final String title = "Ünïcödé — 标题 🎬";
+    assertEquals(title.getBytes(StandardCharsets.UTF_8).length + 1, VideoCodec.stringSize(title));
+  }
+
+  @Test
+  void encodesNullAndEmptyDifferently() {
+    final ByteBuffer buffer = ByteBuffer.allocate(2);
+    VideoCodec.writeString(buffer, null);
+    VideoCodec.writeString(buffer, "");
+    buffer.flip();
+    assertNull(VideoCodec.readString(buffer));
+    assertEquals("", VideoCodec.readString(buffer));
+  }
+
+  @Test
+  void skipsStringsOfAnyLength() {
+    final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    for (Video video : VIDEOS) {
+      VideoCodec.writeString(buffer, video.data);
+    }
+    VideoCodec.writeString(buffer, "end");
+    buffer.flip();
+    for (int i = 0; i < VIDEOS.size(); i++) {
+      VideoCodec.skipString(buffer);
+    }
+    assertEquals("end", VideoCodec.readString(buffer));
+  }
+
+  @Test
+  void sharesTitlesWhenInterning() {
+    final VideoCodec interning = new VideoCodec(new StringInterner(16));
+    final byte[] bytes = interning.encode(new Video("a", "Shared title", "data"));
+    final Video first = interning.decode(bytes);
+    final Video second = interning.decode(bytes);
+    assertEquals("Shared title", first.title);
+    assertSame(first.title, second.title);
+    assertNotSame(first.data, second.data);
+  }
+
+  @Test
+  void keepsTitlesSeparateWithoutInterning() {
+    final byte[] bytes = codec.encode(new Video("a", "Shared title", "data"));
+    assertNotSame(codec.decode(bytes).title, codec.decode(bytes).title);
+  }
+
+  @Test
+  void internsNoMoreThanTheBound() {
+    final StringInterner interner = new StringInterner(1);
+    final VideoCodec interning = new VideoCodec(interner);
+    interning.decode(interning.encode(new Video("a", "first")));
+    final byte[] bytes = interning.encode(new Video("b", "second"));
+    assertNotSame(interning.decode(bytes).title, interning.decode(bytes).title);
+    assertEquals(1, interner.size());
+  }
+
+  @Test
+  void rejectsTruncatedInput() {
+    final byte[] bytes = codec.encode(VIDEOS.get(1));
+    for (int length = 0; length < bytes.length; length++) {
+      final byte[] truncated = Arrays.copyOf(bytes, length);
+      assertThrows(BufferUnderflowException.class, () -> codec.decode(truncated), "length " + length);
+    }
+  }
+
+  @Test
+  void rejectsTruncatedDirectInput() {
+    final byte[] bytes = codec.encode(VIDEOS.get(1));
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length - 1);
+    buffer.put(bytes, 0, bytes.length - 1).flip();
+    assertThrows(BufferUnderflowException.class, () -> codec.decode(buffer));
+  }
+
+  @Test
+  void rejectsLengthPrefixBeyondTheInput() {
+    final ByteBuffer buffer = ByteBuffer.allocate(8);
+    VideoCodec.writeVarInt(buffer, 1000);
+    buffer.put((byte) 'x').flip();
+    assertThrows(BufferUnderflowException.class, () -> VideoCodec.readString(buffer));
+  }
+
+  @Test
+  void rejectsMalformedVarInts() {
+    final byte[] bytes = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1};
+    assertThrows(IllegalArgumentException.class, () -> VideoCodec.readVarInt(ByteBuffer.wrap(bytes)));
+  }
+
+  @Test
+  void roundTripsVarIntBoundaries() {
+    final int[] values = {0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, Integer.MAX_VALUE, -1};
+    final ByteBuffer buffer = ByteBuffer.allocate(64);
+    for (int value : values) {
+      buffer.clear();
+      VideoCodec.writeVarInt(buffer, value);
+      assertEquals(VideoCodec.varIntSize(value), buffer.position());
+      buffer.flip();
+      assertEquals(value, VideoCodec.readVarInt(buffer));
+    }
+  }
+
+  private void roundTripAll(ByteBuffer buffer) {
+    for (Video video : VIDEOS) {
+      codec.encode(video, buffer);
+    }
+    buffer.flip();
+    for (Video video : VIDEOS) {
+      assertVideoEquals(video, codec.decode(buffer));
+    }
+    assertEquals(0, buffer.remaining());
+  }
+
+  // An unpaired surrogate is written as '?', like String.getBytes does.
+  private static void assertVideoEquals(Video expected, Video actual) {
+    assertEquals(normalize(expected.id), actual.id);
+    assertEquals(normalize(expected.title), actual.title);
+    assertEquals(normalize(expected.data), actual.data);
+  }
+
+  private static String normalize(String value) {
+    return value == null ? null : new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,66 @@
+package org.proxy.prefetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PrefetchEngineTest {
+  @Test
+  void prefetchesTheMostAccessedKeys() throws InterruptedException {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+    try (PrefetchEngine engine = new PrefetchEngine(executor, 1, 2)) {
+      for (int i = 0; i < 3; i++) {
+        engine.recordAccess("c");
+      }
+      engine.recordAccess("b");
+      engine.recordAccess("c");
+      engine.prefetchTop(List.of("a", "b", "c", "d"), key -> false, loaded::add);
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    assertEquals(List.of("c", "b"), loaded);
+  }
+
+  @Test
+  void defaultExecutorRunsNoMoreLoadsThanItsLimit() throws InterruptedException {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+    final List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      keys.add("key" + i);
+    }
+    final CountDownLatch done = new CountDownLatch(keys.size());
+    try (PrefetchEngine engine = new PrefetchEngine(3, 10)) {
+      engine.prefetchAll(keys, key -> false, key -> {
+        threads.add(Thread.currentThread().getName());
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        done.countDown();
+      });
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+    assertTrue(maxRunning.get() <= 3, "at most 3 loads at once, saw " + maxRunning.get());
+    // Platform threads are named by the pool; virtual threads are unnamed and not counted.
+    threads.remove("");
+    assertTrue(threads.size() <= 3, "at most 3 pool threads, saw " + threads.size());
+  }
+}
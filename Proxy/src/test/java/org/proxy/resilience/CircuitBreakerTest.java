@@ -0,0 +1,65 @@
+package org.proxy.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+  @Test
+  void opensAfterConsecutiveFailures() {
+    final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onSuccess();
+    breaker.onFailure();
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  void letsOneTrialThroughOnceTheOpenPeriodHasElapsed() throws InterruptedException {
+    final CircuitBreaker breaker = openBreaker();
+    Thread.sleep(30);
+    assertTrue(breaker.tryAcquirePermission());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  void reopensWhenTheTrialFails() throws InterruptedException {
+    final CircuitBreaker breaker = openBreaker();
+    Thread.sleep(30);
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  void releasedTrialPermissionAllowsAnotherTrial() throws InterruptedException {
+    final CircuitBreaker breaker = openBreaker();
+    Thread.sleep(30);
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.releasePermission();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+  }
+
+  private static CircuitBreaker openBreaker() {
+    final CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(20));
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    return breaker;
+  }
+}
@@ -0,0 +1,192 @@
+package org.proxy.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.proxy.lib.ThirdPartyYouTubeLib;
+import org.proxy.lib.Video;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ResilientYouTubeLibTest {
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void shutDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void localRateLimitingNeitherOpensTheBreakerNorRetries() {
+    final CountingLib upstream = new CountingLib();
+    final ThirdPartyYouTubeLib limited = RateLimitedYouTubeLib.builder(upstream).rate(0.001, 1).reject().build();
+    final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(limited)
+        .executor(executor)
+        .retryPolicy(new RetryPolicy(3, Duration.ZERO, Duration.ZERO))
+        .circuitBreaker(breaker)
+        .build();
+
+    assertEquals("a", resilient.getVideo("a").id);
+    for (int i = 0; i < 10; i++) {
+      assertThrows(RateLimitedException.class, () -> resilient.getVideo("b"));
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(1, upstream.calls.get());
+  }
+
+  @Test
+  void locallyRateLimitedCallsMayServeStaleResults() {
+    final CountingLib upstream = new CountingLib();
+    final ThirdPartyYouTubeLib limited = RateLimitedYouTubeLib.builder(upstream).rate(0.001, 1).reject().build();
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(limited).executor(executor).build();
+    final Video first = resilient.getVideo("a");
+    assertEquals(first, resilient.getVideo("a"));
+    assertEquals(1, upstream.calls.get());
+  }
+
+  @Test
+  void retriesTimeoutsAndOpensTheBreaker() {
+    final SlowLib upstream = new SlowLib(200);
+    final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(upstream)
+        .executor(executor)
+        .timeout(Duration.ofMillis(20))
+        .retryPolicy(new RetryPolicy(3, Duration.ZERO, Duration.ZERO))
+        .circuitBreaker(breaker)
+        .build();
+    assertThrows(UpstreamUnavailableException.class, () -> resilient.getVideo("a"));
+    assertEquals(3, upstream.calls.get());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertThrows(UpstreamUnavailableException.class, () -> resilient.getVideo("a"));
+    assertEquals(3, upstream.calls.get());
+  }
+
+  @Test
+  void servesStaleResultsWhileTheBreakerIsOpen() {
+    final FailingLib upstream = new FailingLib(new UncheckedIOException(new IOException("connection reset")));
+    final CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(upstream)
+        .executor(executor)
+        .retryPolicy(RetryPolicy.none())
+        .circuitBreaker(breaker)
+        .build();
+    final Video video = resilient.getVideo("a");
+    upstream.failing = true;
+    assertEquals(video, resilient.getVideo("a"));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(video, resilient.getVideo("a"));
+    assertEquals(2, upstream.calls.get());
+    assertThrows(UpstreamUnavailableException.class, () -> resilient.getVideo("b"));
+  }
+
+  @Test
+  void passesDeterministicLibraryErrorsOnWithoutRetrying() {
+    final FailingLib upstream = new FailingLib(new IllegalArgumentException("bad id"));
+    upstream.failing = true;
+    final CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(upstream)
+        .executor(executor)
+        .retryPolicy(new RetryPolicy(3, Duration.ZERO, Duration.ZERO))
+        .circuitBreaker(breaker)
+        .build();
+    assertThrows(IllegalArgumentException.class, () -> resilient.getVideo("a"));
+    assertEquals(1, upstream.calls.get());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void bulkheadHoldsItsPermitUntilATimedOutCallReturns() throws InterruptedException {
+    final SlowLib upstream = new SlowLib(300);
+    upstream.interruptible = false;
+    final CircuitBreaker breaker = new CircuitBreaker(5, Duration.ofMinutes(1));
+    final ResilientYouTubeLib resilient = ResilientYouTubeLib.builder(upstream)
+        .executor(executor)
+        .timeout(Duration.ofMillis(20))
+        .bulkhead(1, Duration.ZERO)
+        .retryPolicy(RetryPolicy.none())
+        .circuitBreaker(breaker)
+        .build();
+    assertThrows(UpstreamUnavailableException.class, () -> resilient.getVideo("a"));
+    // The first call is still running upstream, so the bulkhead is full: a local rejection.
+    assertThrows(RateLimitedException.class, () -> resilient.getVideo("b"));
+    assertEquals(1, upstream.calls.get());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    Thread.sleep(400);
+    upstream.delayMillis = 0;
+    assertEquals("c", resilient.getVideo("c").id);
+  }
+
+  static class SlowLib extends CountingLib {
+    volatile long delayMillis;
+    volatile boolean interruptible = true;
+
+    SlowLib(long delayMillis) {
+      super();
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public Video getVideo(String videoId) {
+      calls.incrementAndGet();
+      final long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+      while (System.nanoTime() < until) {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException ex) {
+          if (interruptible) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+          }
+        }
+      }
+      return new Video(videoId, "Title " + videoId);
+    }
+  }
+
+  static class FailingLib extends CountingLib {
+    private final RuntimeException failure;
+    volatile boolean failing;
+
+    FailingLib(RuntimeException failure) {
+      super();
+      this.failure = failure;
+    }
+
+    @Override
+    public Video getVideo(String videoId) {
+      final Video video = super.getVideo(videoId);
+      if (failing) {
+        throw failure;
+      }
+      return video;
+    }
+  }
+
+  static class CountingLib implements ThirdPartyYouTubeLib {
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Map<String, Video> popularVideos() {
+      calls.incrementAndGet();
+      return Map.of();
+    }
+
+    @Override
+    public Video getVideo(String videoId) {
+      calls.incrementAndGet();
+      return new Video(videoId, "Title " + videoId);
+    }
+  }
+}
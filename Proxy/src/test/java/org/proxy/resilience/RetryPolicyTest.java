@@ -0,0 +1,39 @@
+package org.proxy.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+  @Test
+  void backoffGrowsExponentiallyWithinTheCap() {
+    final RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofSeconds(1));
+    final long[] ceilings = {100, 200, 400, 800, 1000, 1000};
+    for (int retry = 1; retry <= ceilings.length; retry++) {
+      long max = 0;
+      for (int i = 0; i < 2000; i++) {
+        final long backoff = policy.backoffNanos(retry);
+        assertTrue(backoff >= 0 && backoff <= Duration.ofMillis(ceilings[retry - 1]).toNanos(),
+            "retry " + retry + ": " + backoff);
+        max = Math.max(max, backoff);
+      }
+      // Full jitter spreads the waits over the whole range.
+      assertTrue(max > Duration.ofMillis(ceilings[retry - 1]).toNanos() / 2, "retry " + retry);
+    }
+  }
+
+  @Test
+  void backoffDoesNotOverflowForLateRetries() {
+    final RetryPolicy policy = new RetryPolicy(100, Duration.ofSeconds(1), Duration.ofSeconds(5));
+    assertTrue(policy.backoffNanos(80) <= Duration.ofSeconds(5).toNanos());
+  }
+
+  @Test
+  void noneMakesASingleAttemptWithoutWaiting() {
+    assertEquals(1, RetryPolicy.none().getMaxAttempts());
+    assertEquals(0, RetryPolicy.none().backoffNanos(1));
+  }
+}